@@ -16,6 +16,7 @@
 package inetsoft.spark.quickbooks;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Public API for the QuickBooks runtime implementation
@@ -23,10 +24,77 @@ import java.util.List;
 public interface QuickbooksAPI {
    QuickbooksQueryResult loadData(QuickbooksDataSourceOptions options);
 
+   /**
+    * Get the number of entities of {@link QuickbooksDataSourceOptions#getEntity()} with a count
+    * query, without loading any entities
+    */
+   int getTotalCount(QuickbooksDataSourceOptions options);
+
+   /**
+    * Load the values of some columns of {@link QuickbooksDataSourceOptions#getEntity()} by
+    * decoding the JSON response directly instead of creating the SDK entities.
+    *
+    * @param columns the flattened column names, e.g. metaData_lastUpdatedTime or line_0_amount
+    *
+    * @return the values of each entity in column order, as strings, numbers or booleans
+    */
+   List<Object[]> loadColumns(QuickbooksDataSourceOptions options, List<String> columns);
+
+   /**
+    * Load every entity in {@link QuickbooksDataSourceOptions#getEntities()}, sharing batch
+    * operations between them.
+    *
+    * @return the query result of each entity keyed by entity name, in request order
+    */
+   Map<String, QuickbooksQueryResult> loadEntities(QuickbooksDataSourceOptions options);
+
+   /**
+    * Run the report in {@link QuickbooksDataSourceOptions#getReport()} for the date range in the
+    * options and flatten its rows
+    */
+   QuickbooksReportResult loadReport(QuickbooksDataSourceOptions options);
+
+   /**
+    * Create, update or delete entities of {@link QuickbooksDataSourceOptions#getEntity()},
+    * packing the operations into batch operations.
+    *
+    * @param rows the properties of each entity, nested objects are maps and arrays are lists
+    *
+    * @return the result of each row in the same order as the rows
+    */
+   List<QuickbooksWriteResult> writeEntities(QuickbooksDataSourceOptions options,
+                                             List<Map<String, Object>> rows);
+
    interface QuickbooksQueryResult {
       List<Object> getEntities();
       int getStartPosition();
       int getMaxResults();
       int getTotalCount();
    }
+
+   interface QuickbooksReportResult {
+      List<String> getColumnNames();
+
+      /**
+       * @return the QuickBooks column type of each column, e.g. Money, Date or String
+       */
+      List<String> getColumnTypes();
+
+      /**
+       * @return the values of each row in column order, empty cells are null
+       */
+      List<String[]> getRows();
+   }
+
+   interface QuickbooksWriteResult {
+      /**
+       * @return the ID of the written entity or null if the operation failed
+       */
+      String getId();
+
+      /**
+       * @return the error message if the operation failed, otherwise null
+       */
+      String getError();
+   }
 }
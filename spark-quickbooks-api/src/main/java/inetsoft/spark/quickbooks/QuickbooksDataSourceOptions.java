@@ -17,7 +17,8 @@
 package inetsoft.spark.quickbooks;
 
 import java.io.Serializable;
-import java.util.Map;
+import java.util.*;
+import java.util.stream.Collectors;
 
 public class QuickbooksDataSourceOptions implements Serializable {
    private QuickbooksDataSourceOptions(Map<String, String> options) {
@@ -53,22 +54,353 @@ public class QuickbooksDataSourceOptions implements Serializable {
       return options.getOrDefault("redirectUrl", null);
    }
 
+   /**
+    * @return the base URL of the company API, e.g. of a local test server, or null to use the
+    * URL of the production or sandbox environment
+    */
+   public String getBaseUrl() {
+      return options.getOrDefault("baseUrl", null);
+   }
+
+   /**
+    * @return the URL of the OpenID discovery document that lists the OAuth endpoints, or null to
+    * use the discovery document of the production or sandbox environment
+    */
+   public String getDiscoveryUrl() {
+      return options.getOrDefault("discoveryUrl", null);
+   }
+
    public boolean isProduction() {
-      return options.get("production").equalsIgnoreCase(Boolean.TRUE.toString());
+      return Boolean.parseBoolean(options.getOrDefault("production", "false"));
    }
 
    public boolean isExpandArrays() {
-      return options.get("expandArrays").equalsIgnoreCase(Boolean.TRUE.toString());
+      return Boolean.parseBoolean(options.getOrDefault("expandArrays", "false"));
    }
 
    public boolean isExpandStructs() {
-      return options.get("expandStructs").equalsIgnoreCase(Boolean.TRUE.toString());
+      return Boolean.parseBoolean(options.getOrDefault("expandStructs", "true"));
    }
 
    public String getEntity() {
       return options.getOrDefault("entity", "companyInfo");
    }
 
+   /**
+    * @return the 1 based position of the first entity of the range read by a partition
+    */
+   public int getStartPosition() {
+      return Integer.parseInt(options.getOrDefault("startPosition", "1"));
+   }
+
+   /**
+    * @return the number of entities in the range read by a partition, 0 to read every entity
+    */
+   public int getMaxResults() {
+      return Integer.parseInt(options.getOrDefault("maxResults", "0"));
+   }
+
+   /**
+    * @return the maximum number of rows read from each entity, 0 to read every row
+    */
+   public int getLimit() {
+      return Integer.parseInt(options.getOrDefault("limit", "0"));
+   }
+
+   /**
+    * @return the fields the entities are sorted by in the QuickBooks query, e.g. TxnDate DESC,
+    * or null to read the entities in the API order
+    */
+   public String getOrderBy() {
+      return options.getOrDefault("orderBy", null);
+   }
+
+   /**
+    * @return the fraction of the entities read as a random sample, 0 to read every entity
+    */
+   public double getSampleFraction() {
+      return Double.parseDouble(options.getOrDefault("sampleFraction", "0"));
+   }
+
+   /**
+    * @return the seed of the random sample, or null to take a different sample each time
+    */
+   public Long getSampleSeed() {
+      final String seed = options.getOrDefault("sampleSeed", null);
+      return seed == null ? null : Long.valueOf(seed);
+   }
+
+   /**
+    * @return the number of fetched chunks of entities that are buffered ahead of the row
+    * conversion, 0 to fetch every entity before converting them
+    */
+   public int getPrefetchDepth() {
+      return Integer.parseInt(options.getOrDefault("prefetchDepth", "2"));
+   }
+
+   /**
+    * @return the comma separated entities to load in one pass, or the single entity if the
+    * entities option is not set
+    */
+   public List<String> getEntities() {
+      final String entities = options.get("entities");
+
+      if(entities == null) {
+         return Collections.singletonList(getEntity());
+      }
+
+      return Arrays.stream(entities.split(","))
+                   .map(String::trim)
+                   .filter(entity -> !entity.isEmpty())
+                   .distinct()
+                   .collect(Collectors.toList());
+   }
+
+   /**
+    * @return the QuickBooks query condition of the filters pushed down to the query
+    */
+   public String getWhere() {
+      return options.getOrDefault("where", null);
+   }
+
+   /**
+    * @return the QuickBooks query that selects the rows, e.g.
+    * SELECT Id, TotalAmt FROM Invoice WHERE TxnDate > '2026-01-01', or null to read the entity
+    */
+   public String getQuery() {
+      return options.getOrDefault("query", null);
+   }
+
+   /**
+    * @return the fields of the entity selected by the query, or an empty list to select every
+    * field
+    */
+   public List<String> getFields() {
+      final String fields = options.get("fields");
+
+      if(fields == null) {
+         return Collections.emptyList();
+      }
+
+      return Arrays.stream(fields.split(","))
+                   .map(String::trim)
+                   .filter(field -> !field.isEmpty())
+                   .collect(Collectors.toList());
+   }
+
+   /**
+    * @return the IDs of the entities looked up by the query, or an empty list if the entities
+    * aren't looked up by ID
+    */
+   public List<String> getIds() {
+      final String ids = options.get("ids");
+
+      if(ids == null) {
+         return Collections.emptyList();
+      }
+
+      return Arrays.stream(ids.split(","))
+                   .map(String::trim)
+                   .filter(id -> !id.isEmpty())
+                   .distinct()
+                   .collect(Collectors.toList());
+   }
+
+   /**
+    * @return the attributes of referenced entities that are read as columns, each a reference
+    * field followed by the path of the attribute, e.g. CustomerRef.DisplayName
+    */
+   public List<String> getResolveRefs() {
+      final String refs = options.get("resolveRefs");
+
+      if(refs == null) {
+         return Collections.emptyList();
+      }
+
+      return Arrays.stream(refs.split(","))
+                   .map(String::trim)
+                   .filter(ref -> !ref.isEmpty())
+                   .distinct()
+                   .collect(Collectors.toList());
+   }
+
+   /**
+    * @return the maximum number of resolved reference attributes cached by each executor
+    */
+   public int getResolveCacheSize() {
+      return Integer.parseInt(options.getOrDefault("resolveCacheSize", "100000"));
+   }
+
+   /**
+    * @return the number of seconds the schema of an entity is cached, 0 to sample the entity
+    * for each table
+    */
+   public int getSchemaCacheSeconds() {
+      return Integer.parseInt(options.getOrDefault("schemaCacheSeconds", "0"));
+   }
+
+   /**
+    * @return the number of seconds resolved reference attributes are cached
+    */
+   public int getResolveCacheSeconds() {
+      return Integer.parseInt(options.getOrDefault("resolveCacheSeconds", "600"));
+   }
+
+   /**
+    * @return the columns, in addition to the Id and MetaData times, that QuickBooks can filter
+    * the entity by
+    */
+   public Set<String> getFilterFields() {
+      final Set<String> fields = new HashSet<>(Arrays.asList(
+         "id", "metaData_createTime", "metaData_lastUpdatedTime"));
+      final String filterFields = options.get("filterFields");
+
+      if(filterFields != null) {
+         Arrays.stream(filterFields.split(","))
+               .map(String::trim)
+               .filter(field -> !field.isEmpty())
+               .forEach(fields::add);
+      }
+
+      return fields;
+   }
+
+   public String getReport() {
+      return options.getOrDefault("report", null);
+   }
+
+   /**
+    * @return the first day of the report period, formatted as yyyy-MM-dd
+    */
+   public String getStartDate() {
+      return options.getOrDefault("startDate", null);
+   }
+
+   /**
+    * @return the last day of the report period, formatted as yyyy-MM-dd
+    */
+   public String getEndDate() {
+      return options.getOrDefault("endDate", null);
+   }
+
+   /**
+    * @return the number of days in each report partition, 0 to fetch the report in one request
+    */
+   public int getReportSliceDays() {
+      return Integer.parseInt(options.getOrDefault("reportSliceDays", "0"));
+   }
+
+   /**
+    * @return the options prefixed with "report." passed as query parameters of the report
+    */
+   public Map<String, String> getReportParameters() {
+      final Map<String, String> parameters = new HashMap<>();
+
+      for(Map.Entry<String, String> entry : options.entrySet()) {
+         if(entry.getKey().startsWith(REPORT_PARAMETER_PREFIX)) {
+            parameters.put(entry.getKey().substring(REPORT_PARAMETER_PREFIX.length()),
+                           entry.getValue());
+         }
+      }
+
+      return parameters;
+   }
+
+   /**
+    * @return the number of seconds the row count of an entity is cached for table statistics
+    */
+   public int getStatisticsCacheSeconds() {
+      return Integer.parseInt(options.getOrDefault("statisticsCacheSeconds", "300"));
+   }
+
+   /**
+    * @return the number of seconds converted rows are cached for repeated reads, 0 to disable the
+    * result cache
+    */
+   public int getResultCacheSeconds() {
+      return Integer.parseInt(options.getOrDefault("resultCacheSeconds", "0"));
+   }
+
+   /**
+    * @return the maximum total size in bytes of the cached rows
+    */
+   public long getResultCacheMaxBytes() {
+      return Long.parseLong(options.getOrDefault("resultCacheMaxBytes",
+                                                 String.valueOf(256L * 1024 * 1024)));
+   }
+
+   /**
+    * @return the target size in bytes of the partitions of an entity scan, 0 to read the entity
+    * in a single partition
+    */
+   public long getTargetPartitionBytes() {
+      return Long.parseLong(options.getOrDefault("targetPartitionBytes", "0"));
+   }
+
+   /**
+    * @return true to decode the query responses directly into rows instead of creating the SDK
+    * entities
+    */
+   public boolean isRawJson() {
+      return options.getOrDefault("rawJson", "false").equalsIgnoreCase(Boolean.TRUE.toString());
+   }
+
+   /**
+    * @return true to spill the converted chunks of a partition so a retried task replays them
+    * instead of fetching them again
+    */
+   public boolean isCheckpoint() {
+      return Boolean.parseBoolean(options.getOrDefault("checkpoint", "false"));
+   }
+
+   /**
+    * @return true to keep a local snapshot of the entity that is refreshed with the entities
+    * updated since the last read
+    */
+   public boolean isSnapshot() {
+      return options.getOrDefault("snapshot", "false").equalsIgnoreCase(Boolean.TRUE.toString());
+   }
+
+   /**
+    * @return the directory the trace files of the reads are written to, or null to not trace
+    */
+   public String getTraceDir() {
+      return options.getOrDefault("traceDir", null);
+   }
+
+   /**
+    * @return the batch operation used to write rows: create, update or delete
+    */
+   public String getWriteOperation() {
+      return options.getOrDefault("writeOperation", "create");
+   }
+
+   /**
+    * @return the ID used to look up the results of a write
+    */
+   public String getWriteId() {
+      return options.getOrDefault("writeId", null);
+   }
+
+   /**
+    * @return the value of an option as it was set, or null if it isn't set. Unlike the typed
+    * getters this doesn't fall back to the default value.
+    */
+   public String getOption(String key) {
+      return options.get(key);
+   }
+
+   /**
+    * Copy these options replacing a single option
+    */
+   public QuickbooksDataSourceOptions withOption(String key, String value) {
+      final Map<String, String> newOptions = new HashMap<>(options);
+      newOptions.put(key, value);
+      final QuickbooksDataSourceOptions copy = new QuickbooksDataSourceOptions(newOptions);
+      copy.schemaOnly = schemaOnly;
+      return copy;
+   }
+
    public boolean isSchemaOnly() {
       return schemaOnly;
    }
@@ -79,4 +411,5 @@ public class QuickbooksDataSourceOptions implements Serializable {
 
    private final Map<String, String> options;
    private boolean schemaOnly;
+   private static final String REPORT_PARAMETER_PREFIX = "report.";
 }
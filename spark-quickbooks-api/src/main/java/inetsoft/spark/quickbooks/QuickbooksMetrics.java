@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+/**
+ * Receives the measurements of the QuickBooks runtime. The runtime is loaded in its own
+ * classloader, this class is shared with the data source so the data source can publish the
+ * measurements to the Spark metrics system.
+ */
+public final class QuickbooksMetrics {
+   private QuickbooksMetrics() {
+   }
+
+   public static Listener getListener() {
+      return listener;
+   }
+
+   public static void setListener(Listener listener) {
+      QuickbooksMetrics.listener = listener != null ? listener : NO_OP;
+   }
+
+   public interface Listener {
+      /**
+       * Called when a request to QuickBooks completes
+       *
+       * @param companyId the company of the request
+       * @param entity    the entity or report of the request
+       * @param type      the type of request, one of the REQUEST_ constants
+       * @param millis    the time the request took
+       * @param queries   the number of queries or operations in the request
+       * @param rows      the number of entities or rows returned
+       * @param bytes     the size of the response, or -1 if it isn't known
+       */
+      void requestCompleted(String companyId, String entity, String type, long millis,
+                            int queries, long rows, long bytes);
+
+      /**
+       * Called when a throttled request waits before it is retried
+       */
+      void throttled(String companyId, String entity, long waitMillis);
+
+      /**
+       * Called when an OAuth access token has been fetched or refreshed
+       */
+      void tokenFetched(String companyId, long millis);
+   }
+
+   public static final String REQUEST_COUNT = "count";
+   public static final String REQUEST_QUERY = "query";
+   public static final String REQUEST_BATCH = "batch";
+   public static final String REQUEST_REPORT = "report";
+   public static final String REQUEST_WRITE = "write";
+
+   private static final Listener NO_OP = new Listener() {
+      @Override
+      public void requestCompleted(String companyId, String entity, String type, long millis,
+                                   int queries, long rows, long bytes)
+      {
+      }
+
+      @Override
+      public void throttled(String companyId, String entity, long waitMillis) {
+      }
+
+      @Override
+      public void tokenFetched(String companyId, long millis) {
+      }
+   };
+   private static volatile Listener listener = NO_OP;
+}
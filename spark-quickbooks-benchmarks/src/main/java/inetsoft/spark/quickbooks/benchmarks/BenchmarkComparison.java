@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compares two JSON result files of {@link BenchmarkRunner}, printing the time and allocation
+ * per row of each benchmark in both and the change of the time.
+ * <p>
+ * Arguments: baseline.json current.json
+ */
+public class BenchmarkComparison {
+   public static void main(String[] args) throws IOException {
+      if(args.length != 2) {
+         System.err.println("Usage: BenchmarkComparison baseline.json current.json");
+         System.exit(1);
+      }
+
+      final Map<String, double[]> baseline = readResults(new File(args[0]));
+      final Map<String, double[]> current = readResults(new File(args[1]));
+      final Set<String> names = new TreeSet<>(baseline.keySet());
+      names.addAll(current.keySet());
+
+      System.out.printf("%-70s %12s %12s %8s %10s %10s%n", "Benchmark", "Base ns/row",
+                        "ns/row", "Change", "Base B/row", "B/row");
+
+      for(String name : names) {
+         final double[] base = baseline.getOrDefault(name, MISSING);
+         final double[] result = current.getOrDefault(name, MISSING);
+         final String change = base == MISSING || result == MISSING ?
+            "" : String.format("%+.1f%%", (result[0] - base[0]) * 100 / base[0]);
+         System.out.printf("%-70s %12.1f %12.1f %8s %10.1f %10.1f%n", name, base[0], result[0],
+                           change, base[1], result[1]);
+      }
+   }
+
+   /**
+    * @return the score and allocated bytes of each benchmark keyed by name and parameters
+    */
+   private static Map<String, double[]> readResults(File file) throws IOException {
+      final Map<String, double[]> results = new HashMap<>();
+
+      for(JsonNode result : new ObjectMapper().readTree(file)) {
+         final StringBuilder name = new StringBuilder(result.path("benchmark").asText());
+         final Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+
+         while(params.hasNext()) {
+            final Map.Entry<String, JsonNode> param = params.next();
+            name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+         }
+
+         double allocated = Double.NaN;
+         final Iterator<Map.Entry<String, JsonNode>> metrics =
+            result.path("secondaryMetrics").fields();
+
+         // older versions of JMH prefix the name with a middle dot
+         while(metrics.hasNext()) {
+            final Map.Entry<String, JsonNode> metric = metrics.next();
+
+            if(metric.getKey().endsWith("gc.alloc.rate.norm")) {
+               allocated = metric.getValue().path("score").asDouble();
+            }
+         }
+
+         results.put(name.toString().replace("inetsoft.spark.quickbooks.benchmarks.", ""),
+                     new double[]{ result.path("primaryMetric").path("score").asDouble(),
+                                   allocated });
+      }
+
+      return results;
+   }
+
+   private static final double[] MISSING = { Double.NaN, Double.NaN };
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the bytes allocated per row as
+ * gc.alloc.rate.norm, and writes the results as JSON named by the connector version so the
+ * results of releases can be compared with {@link BenchmarkComparison}.
+ * <p>
+ * Arguments: [result file] [benchmark regex]
+ */
+public class BenchmarkRunner {
+   public static void main(String[] args) throws RunnerException {
+      final String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+      final String result = args.length > 0 ?
+         args[0] : "benchmark-results/" + (version == null ? "dev" : version) + ".json";
+      final File resultDir = new File(result).getAbsoluteFile().getParentFile();
+
+      if(!resultDir.isDirectory() && !resultDir.mkdirs()) {
+         throw new IllegalStateException("Failed to create " + resultDir);
+      }
+
+      final Options options = new OptionsBuilder()
+         .include(args.length > 1 ? args[1] : ".*Benchmark.*")
+         .addProfiler(GCProfiler.class)
+         .resultFormat(ResultFormatType.JSON)
+         .result(result)
+         .build();
+      new Runner(options).run();
+   }
+}
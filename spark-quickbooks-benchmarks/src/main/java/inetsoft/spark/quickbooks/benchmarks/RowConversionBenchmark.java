@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.benchmarks;
+
+import inetsoft.spark.quickbooks.SparkSchema;
+import inetsoft.spark.quickbooks.SparkSchemaGenerator;
+import inetsoft.spark.quickbooks.source.QuickbooksPartitionReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of converting entities to rows with the partition reader, per row
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowConversionBenchmark {
+   @Setup
+   public void setup() {
+      entities = SyntheticEntities.create(shape, ROWS);
+      schema = new SparkSchemaGenerator().generateSchema(entities.toArray());
+
+      if(flattened) {
+         schema.flatten(true);
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(ROWS)
+   public void convert(Blackhole blackhole) {
+      final QuickbooksPartitionReader reader =
+         new QuickbooksPartitionReader(entities.iterator(), schema);
+
+      while(reader.next()) {
+         blackhole.consume(reader.get());
+      }
+
+      reader.close();
+   }
+
+   @Param({ SyntheticEntities.REFERENCE, "invoice-10", "invoice-100", SyntheticEntities.NESTED })
+   public String shape;
+   @Param({ "false", "true" })
+   public boolean flattened;
+
+   private static final int ROWS = 1000;
+   private List<Object> entities;
+   private SparkSchema schema;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.benchmarks;
+
+import inetsoft.spark.quickbooks.SparkSchema;
+import inetsoft.spark.quickbooks.SparkSchemaGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of generating the Spark schema of a sample of entities, per entity
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaBenchmark {
+   @Setup
+   public void setup() {
+      sample = SyntheticEntities.create(shape, SAMPLE_SIZE).toArray();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLE_SIZE)
+   public SparkSchema generateSchema() {
+      final SparkSchema schema = new SparkSchemaGenerator().generateSchema(sample);
+      return flattened ? schema.flatten(true) : schema;
+   }
+
+   @Param({ SyntheticEntities.REFERENCE, "invoice-10", "invoice-100", SyntheticEntities.NESTED })
+   public String shape;
+   @Param({ "false", "true" })
+   public boolean flattened;
+
+   // number of entities the schema of a table is generated from
+   private static final int SAMPLE_SIZE = 100;
+   private Object[] sample;
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.benchmarks;
+
+import com.intuit.ipp.data.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Creates QuickBooks SDK entities with every benchmarked property set, in the shapes of the
+ * entities read by the connector
+ */
+public final class SyntheticEntities {
+   private SyntheticEntities() {
+   }
+
+   /**
+    * @param shape reference for narrow reference entities, invoice-N for invoices with N line
+    *              items or nested for customers with nested address, contact and reference
+    *              structs
+    * @param count the number of entities
+    */
+   public static List<Object> create(String shape, int count) {
+      final int index = shape.indexOf('-');
+      final String type = index < 0 ? shape : shape.substring(0, index);
+      final int lines = index < 0 ? 0 : Integer.parseInt(shape.substring(index + 1));
+      final List<Object> entities = new ArrayList<>(count);
+
+      for(int i = 1; i <= count; i++) {
+         switch(type) {
+            case REFERENCE:
+               entities.add(createDepartment(i));
+               break;
+            case INVOICE:
+               entities.add(createInvoice(i, lines));
+               break;
+            case NESTED:
+               entities.add(createCustomer(i));
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown entity shape: " + shape);
+         }
+      }
+
+      return entities;
+   }
+
+   private static Department createDepartment(int id) {
+      final Department department = new Department();
+      setIdentity(department, id);
+      department.setName("Department " + id);
+      department.setFullyQualifiedName("Department " + id);
+      department.setActive(Boolean.TRUE);
+      department.setSubDepartment(Boolean.FALSE);
+      return department;
+   }
+
+   private static Invoice createInvoice(int id, int lines) {
+      final Invoice invoice = new Invoice();
+      setIdentity(invoice, id);
+      invoice.setDocNumber("INV-" + id);
+      invoice.setTxnDate(new Date(TIME + id * 60000L));
+      invoice.setDueDate(new Date(TIME + id * 60000L + 30L * 86400000L));
+      invoice.setCustomerRef(createReference(id % 100, "Customer "));
+      invoice.setBillAddr(createAddress(id));
+      invoice.setPrivateNote("Synthetic invoice " + id);
+      BigDecimal total = BigDecimal.ZERO;
+
+      for(int i = 1; i <= lines; i++) {
+         final SalesItemLineDetail detail = new SalesItemLineDetail();
+         detail.setItemRef(createReference(i, "Item "));
+         detail.setTaxCodeRef(createReference(1, "TAX"));
+         detail.setQty(BigDecimal.valueOf(i));
+         detail.setServiceDate(invoice.getTxnDate());
+
+         final Line line = new Line();
+         final BigDecimal amount = BigDecimal.valueOf(id * 100L + i, 2);
+         line.setId(String.valueOf(i));
+         line.setLineNum(BigInteger.valueOf(i));
+         line.setDescription("Line " + i + " of invoice " + id);
+         line.setAmount(amount);
+         line.setDetailType(LineDetailTypeEnum.SALES_ITEM_LINE_DETAIL);
+         line.setSalesItemLineDetail(detail);
+         invoice.getLine().add(line);
+         total = total.add(amount);
+      }
+
+      invoice.setTotalAmt(total);
+      invoice.setBalance(total);
+      return invoice;
+   }
+
+   private static Customer createCustomer(int id) {
+      final Customer customer = new Customer();
+      setIdentity(customer, id);
+      customer.setDisplayName("Customer " + id);
+      customer.setGivenName("Given" + id);
+      customer.setFamilyName("Family" + id);
+      customer.setCompanyName("Company " + id);
+      customer.setActive(Boolean.TRUE);
+      customer.setBalance(BigDecimal.valueOf(id, 2));
+      customer.setBillAddr(createAddress(id));
+      customer.setShipAddr(createAddress(id + 1));
+      customer.setCurrencyRef(createReference(1, "USD"));
+      customer.setParentRef(createReference(id / 10 + 1, "Customer "));
+
+      final EmailAddress email = new EmailAddress();
+      email.setAddress("customer" + id + "@example.com");
+      customer.setPrimaryEmailAddr(email);
+
+      final TelephoneNumber phone = new TelephoneNumber();
+      phone.setFreeFormNumber(String.format("(555) 555-%04d", id % 10000));
+      customer.setPrimaryPhone(phone);
+      return customer;
+   }
+
+   private static void setIdentity(IntuitEntity entity, int id) {
+      final ModificationMetaData metaData = new ModificationMetaData();
+      metaData.setCreateTime(new Date(TIME));
+      metaData.setLastUpdatedTime(new Date(TIME + id * 60000L));
+      entity.setId(String.valueOf(id));
+      entity.setSyncToken("0");
+      entity.setMetaData(metaData);
+   }
+
+   private static ReferenceType createReference(int id, String namePrefix) {
+      final ReferenceType reference = new ReferenceType();
+      reference.setValue(String.valueOf(id));
+      reference.setName(namePrefix + id);
+      return reference;
+   }
+
+   private static PhysicalAddress createAddress(int id) {
+      final PhysicalAddress address = new PhysicalAddress();
+      address.setId(String.valueOf(id));
+      address.setLine1(id + " Main Street");
+      address.setCity("Springfield");
+      address.setCountrySubDivisionCode("NJ");
+      address.setPostalCode(String.format("%05d", id % 100000));
+      address.setCountry("USA");
+      return address;
+   }
+
+   public static final String REFERENCE = "reference";
+   public static final String INVOICE = "invoice";
+   public static final String NESTED = "nested";
+   // 2020-01-01T00:00:00Z
+   private static final long TIME = 1577836800000L;
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.mock;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Generates the JSON of synthetic entities. Entity n has the id n and was last updated n minutes
+ * after the start time, so the same entities are returned for the same positions and queries on
+ * the update time select a predictable range.
+ */
+public class EntityGenerator {
+   /**
+    * @param entityBytes  the approximate size of the JSON of each entity
+    * @param paddingField the string property of the entity that is filled to reach the size
+    */
+   public EntityGenerator(int entityBytes, String paddingField) {
+      this.paddingField = paddingField;
+      final int padding = Math.max(0, entityBytes - BASE_BYTES);
+      final StringBuilder text = new StringBuilder(padding);
+
+      for(int i = 0; i < padding; i++) {
+         text.append((char) ('a' + i % 26));
+      }
+
+      this.padding = text.toString();
+   }
+
+   /**
+    * Append the JSON of an entity
+    *
+    * @param id the 1 based id of the entity
+    */
+   public void append(StringBuilder json, int id) {
+      final String time = formatTime(id);
+      json.append("{\"Id\":\"").append(id)
+          .append("\",\"SyncToken\":\"0\",\"domain\":\"QBO\",\"sparse\":false")
+          .append(",\"MetaData\":{\"CreateTime\":\"").append(formatTime(0))
+          .append("\",\"LastUpdatedTime\":\"").append(time).append("\"}");
+
+      if(!padding.isEmpty()) {
+         json.append(",\"").append(paddingField).append("\":\"").append(padding).append('"');
+      }
+
+      json.append('}');
+   }
+
+   /**
+    * @return the last update time of an entity
+    */
+   public static String formatTime(int id) {
+      return START_TIME.plusMinutes(id).format(FORMAT);
+   }
+
+   /**
+    * @return the id of the first entity updated at or after a time
+    */
+   public static int getFirstUpdatedSince(String time) {
+      final long seconds = Duration.between(START_TIME, OffsetDateTime.parse(time)).getSeconds();
+      return (int) Math.max(1, (seconds + 59) / 60);
+   }
+
+   // size of the JSON of an entity without padding
+   private static final int BASE_BYTES = 160;
+   private static final OffsetDateTime START_TIME =
+      OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(-8));
+   private static final DateTimeFormatter FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+   private final String paddingField;
+   private final String padding;
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.mock;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parts of a QuickBooks query that the mock server answers: the entity, COUNT(*), the page,
+ * Id = and Id IN conditions and MetaData.LastUpdatedTime lower bounds. Other conditions are
+ * ignored and match every entity.
+ */
+class MockQuery {
+   private MockQuery(String entity, boolean count, int startPosition, int maxResults,
+                     Set<Integer> ids, String updatedSince)
+   {
+      this.entity = entity;
+      this.count = count;
+      this.startPosition = startPosition;
+      this.maxResults = maxResults;
+      this.ids = ids;
+      this.updatedSince = updatedSince;
+   }
+
+   static MockQuery parse(String query) {
+      final Matcher select = SELECT.matcher(query.trim());
+
+      if(!select.matches()) {
+         throw new IllegalArgumentException("Unsupported query: " + query);
+      }
+
+      final String rest = select.group(3);
+      return new MockQuery(select.group(2), select.group(1).trim().equalsIgnoreCase("count(*)"),
+                           findInt(START_POSITION, rest, 1), findInt(MAX_RESULTS, rest, 100),
+                           findIds(rest), findString(UPDATED_SINCE, rest));
+   }
+
+   /**
+    * @return the ids of the entities selected by the query, before paging
+    */
+   List<Integer> select(int entityCount) {
+      final List<Integer> selected = new ArrayList<>();
+
+      if(ids != null) {
+         ids.stream().filter(id -> id >= 1 && id <= entityCount).sorted()
+            .forEach(selected::add);
+      }
+      else {
+         final int first = updatedSince == null ?
+            1 : EntityGenerator.getFirstUpdatedSince(updatedSince);
+
+         for(int id = first; id <= entityCount; id++) {
+            selected.add(id);
+         }
+      }
+
+      return selected;
+   }
+
+   /**
+    * @return the ids of the entities on the page of the query
+    */
+   List<Integer> page(int entityCount) {
+      final List<Integer> selected = select(entityCount);
+      final int from = Math.min(selected.size(), Math.max(0, startPosition - 1));
+      final int to = Math.min(selected.size(), from + maxResults);
+      return selected.subList(from, to);
+   }
+
+   String getEntity() {
+      return entity;
+   }
+
+   boolean isCount() {
+      return count;
+   }
+
+   int getStartPosition() {
+      return startPosition;
+   }
+
+   private static int findInt(Pattern pattern, String text, int defaultValue) {
+      final String value = findString(pattern, text);
+      return value == null ? defaultValue : Integer.parseInt(value);
+   }
+
+   private static String findString(Pattern pattern, String text) {
+      final Matcher matcher = pattern.matcher(text);
+      return matcher.find() ? matcher.group(1) : null;
+   }
+
+   private static Set<Integer> findIds(String text) {
+      final Matcher in = ID_IN.matcher(text);
+      final Matcher equals = ID_EQUALS.matcher(text);
+      final String list = in.find() ? in.group(1) : equals.find() ? equals.group(1) : null;
+
+      if(list == null) {
+         return null;
+      }
+
+      final Set<Integer> ids = new HashSet<>();
+
+      for(String id : list.split(",")) {
+         final String value = id.trim().replace("'", "");
+
+         if(!value.isEmpty()) {
+            ids.add(Integer.parseInt(value));
+         }
+      }
+
+      return ids;
+   }
+
+   private static final Pattern SELECT = Pattern.compile(
+      "select\\s+(.+?)\\s+from\\s+(\\w+)(.*)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+   private static final Pattern START_POSITION =
+      Pattern.compile("startposition\\s+(\\d+)", Pattern.CASE_INSENSITIVE);
+   private static final Pattern MAX_RESULTS =
+      Pattern.compile("maxresults\\s+(\\d+)", Pattern.CASE_INSENSITIVE);
+   private static final Pattern ID_IN =
+      Pattern.compile("\\bid\\s+in\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+   private static final Pattern ID_EQUALS =
+      Pattern.compile("\\bid\\s*=\\s*('[^']*'|\\d+)", Pattern.CASE_INSENSITIVE);
+   private static final Pattern UPDATED_SINCE = Pattern.compile(
+      "lastupdatedtime\\s*>=?\\s*'([^']+)'", Pattern.CASE_INSENSITIVE);
+   private final String entity;
+   private final boolean count;
+   private final int startPosition;
+   private final int maxResults;
+   private final Set<Integer> ids;
+   private final String updatedSince;
+}
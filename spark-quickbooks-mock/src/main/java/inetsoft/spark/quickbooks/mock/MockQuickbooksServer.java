@@ -0,0 +1,474 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.mock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Embedded HTTP server that stands in for the QuickBooks Online API. It answers the query, batch
+ * and change data capture endpoints of the company API with synthetic entities, and the OpenID
+ * discovery and token endpoints of OAuth, with configurable latency and throttling. Point the
+ * baseUrl and discoveryUrl options of the data source at {@link #getBaseUrl()} and
+ * {@link #getDiscoveryUrl()}.
+ */
+public class MockQuickbooksServer implements AutoCloseable {
+   MockQuickbooksServer(int port, int entityCount, EntityGenerator generator, long latencyMillis,
+                        long microsPerEntity, int requestsPerSecond, int maxConcurrent)
+      throws IOException
+   {
+      this.entityCount = entityCount;
+      this.generator = generator;
+      this.latencyMillis = latencyMillis;
+      this.microsPerEntity = microsPerEntity;
+      this.requestsPerSecond = requestsPerSecond;
+      this.maxConcurrent = maxConcurrent;
+      this.executor = Executors.newCachedThreadPool(runnable -> {
+         final Thread thread = new Thread(runnable, "quickbooks-mock");
+         thread.setDaemon(true);
+         return thread;
+      });
+      this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+      server.createContext("/", this::handle);
+      server.setExecutor(executor);
+      server.start();
+   }
+
+   /**
+    * Run the server until the process is stopped. The arguments are builder properties, e.g.
+    * port=8080 entityCount=100000 latencyMillis=200
+    */
+   public static void main(String[] args) throws IOException, InterruptedException {
+      final MockQuickbooksServerBuilder builder = new MockQuickbooksServerBuilder();
+
+      for(String arg : args) {
+         final int index = arg.indexOf('=');
+         builder.set(arg.substring(0, index), arg.substring(index + 1));
+      }
+
+      final MockQuickbooksServer server = builder.start();
+      System.out.println("baseUrl=" + server.getBaseUrl());
+      System.out.println("discoveryUrl=" + server.getDiscoveryUrl());
+      Thread.currentThread().join();
+   }
+
+   /**
+    * @return the base URL of the company API, passed as the baseUrl option
+    */
+   public String getBaseUrl() {
+      return getServerUrl() + "/v3/company";
+   }
+
+   /**
+    * @return the URL of the OpenID discovery document, passed as the discoveryUrl option
+    */
+   public String getDiscoveryUrl() {
+      return getServerUrl() + DISCOVERY_PATH;
+   }
+
+   /**
+    * @return the number of API requests that were answered or throttled
+    */
+   public long getRequestCount() {
+      return requests.get();
+   }
+
+   public long getThrottledCount() {
+      return throttled.get();
+   }
+
+   /**
+    * @return the number of entities returned by query, batch and change data capture requests
+    */
+   public long getEntityCount() {
+      return entities.get();
+   }
+
+   @Override
+   public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+   }
+
+   private String getServerUrl() {
+      return "http://localhost:" + server.getAddress().getPort();
+   }
+
+   private void handle(HttpExchange exchange) throws IOException {
+      try {
+         final String path = exchange.getRequestURI().getPath();
+
+         if(DISCOVERY_PATH.equals(path)) {
+            send(exchange, 200, getDiscoveryDocument());
+            return;
+         }
+
+         if(TOKEN_PATH.equals(path)) {
+            readBody(exchange);
+            send(exchange, 200, "{\"token_type\":\"bearer\",\"access_token\":\"mock-access-" +
+               tokens.incrementAndGet() + "\",\"refresh_token\":\"mock-refresh\"," +
+               "\"expires_in\":3600,\"x_refresh_token_expires_in\":8726400}");
+            return;
+         }
+
+         final Matcher company = COMPANY_PATH.matcher(path);
+
+         if(!company.matches()) {
+            send(exchange, 404, fault("Unsupported path " + path, "404"));
+            return;
+         }
+
+         final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+
+         if(authorization == null || !authorization.startsWith("Bearer ")) {
+            send(exchange, 401, fault("AuthenticationFailed", "3200"));
+            return;
+         }
+
+         handleCompany(exchange, company.group(1), company.group(2));
+      }
+      catch(RuntimeException e) {
+         send(exchange, 400, fault(String.valueOf(e.getMessage()), "4000"));
+      }
+      finally {
+         exchange.close();
+      }
+   }
+
+   private void handleCompany(HttpExchange exchange, String realm, String operation)
+      throws IOException
+   {
+      requests.incrementAndGet();
+      final AtomicInteger running = concurrent.computeIfAbsent(realm, key -> new AtomicInteger());
+
+      try {
+         if(running.incrementAndGet() > maxConcurrent && maxConcurrent > 0 ||
+            isRateLimited(realm))
+         {
+            throttled.incrementAndGet();
+            send(exchange, 429, fault("message=ThrottleExceeded; errorCode=003001; " +
+                                         "statusCode=429", "3001"));
+            return;
+         }
+
+         final StringBuilder json = new StringBuilder();
+         final int count;
+
+         if("query".equals(operation)) {
+            final String query = getParameters(exchange).get("query");
+            count = appendQueryResponse(json, MockQuery.parse(query != null ?
+               query : new String(readBody(exchange), StandardCharsets.UTF_8)));
+         }
+         else if("batch".equals(operation)) {
+            count = appendBatchResponse(json, new String(readBody(exchange),
+                                                         StandardCharsets.UTF_8));
+         }
+         else if("cdc".equals(operation)) {
+            final Map<String, String> parameters = getParameters(exchange);
+            count = appendChangeResponse(json, parameters.get("entities"),
+                                         parameters.get("changedSince"));
+         }
+         else {
+            send(exchange, 404, fault("Unsupported operation " + operation, "404"));
+            return;
+         }
+
+         // add the response time to the end of the response object
+         json.setLength(json.length() - 1);
+         json.append(",\"time\":\"").append(OffsetDateTime.now()).append("\"}");
+         entities.addAndGet(count);
+         sleep(latencyMillis * 1000 + microsPerEntity * count);
+         send(exchange, 200, json.toString());
+      }
+      finally {
+         running.decrementAndGet();
+      }
+   }
+
+   /**
+    * Append {"QueryResponse":{...}} and return the number of entities in it
+    */
+   private int appendQueryResponse(StringBuilder json, MockQuery query) {
+      json.append("{\"QueryResponse\":");
+      final int count = appendQueryResult(json, query);
+      json.append('}');
+      return count;
+   }
+
+   private int appendQueryResult(StringBuilder json, MockQuery query) {
+      if(query.isCount()) {
+         json.append("{\"totalCount\":").append(query.select(entityCount).size()).append('}');
+         return 0;
+      }
+
+      final List<Integer> ids = query.page(entityCount);
+      appendEntities(json, query.getEntity(), ids, query.getStartPosition());
+      return ids.size();
+   }
+
+   private void appendEntities(StringBuilder json, String entity, List<Integer> ids,
+                               int startPosition)
+   {
+      json.append('{');
+
+      if(!ids.isEmpty()) {
+         json.append('"').append(entity).append("\":[");
+
+         for(int i = 0; i < ids.size(); i++) {
+            if(i > 0) {
+               json.append(',');
+            }
+
+            generator.append(json, ids.get(i));
+         }
+
+         json.append("],\"startPosition\":").append(startPosition)
+             .append(",\"maxResults\":").append(ids.size());
+      }
+
+      json.append('}');
+   }
+
+   /**
+    * Answer the queries of a batch request, which the SDK sends as XML or JSON
+    */
+   private int appendBatchResponse(StringBuilder json, String request) {
+      final Matcher xmlItems = XML_BATCH_ITEM.matcher(request);
+      final Map<String, String> queries = new LinkedHashMap<>();
+
+      while(xmlItems.find()) {
+         queries.put(xmlItems.group(1), unescapeXml(xmlItems.group(2)));
+      }
+
+      if(queries.isEmpty()) {
+         final Matcher jsonItems = JSON_BATCH_ITEM.matcher(request);
+
+         while(jsonItems.find()) {
+            final Matcher bId = JSON_BID.matcher(jsonItems.group());
+            final Matcher query = JSON_QUERY.matcher(jsonItems.group());
+
+            if(bId.find() && query.find()) {
+               queries.put(bId.group(1), unescapeJson(query.group(1)));
+            }
+         }
+      }
+
+      json.append("{\"BatchItemResponse\":[");
+      int count = 0;
+      boolean separator = false;
+
+      for(Map.Entry<String, String> entry : queries.entrySet()) {
+         json.append(separator ? "," : "");
+         separator = true;
+
+         json.append("{\"bId\":\"").append(entry.getKey()).append("\",\"QueryResponse\":");
+         count += appendQueryResult(json, MockQuery.parse(entry.getValue()));
+         json.append('}');
+      }
+
+      json.append("]}");
+      return count;
+   }
+
+   /**
+    * Answer a change data capture request with the entities updated since a time, at most 1000
+    * of each entity like QuickBooks
+    */
+   private int appendChangeResponse(StringBuilder json, String entityNames, String changedSince) {
+      json.append("{\"CDCResponse\":[{\"QueryResponse\":[");
+      final int first = EntityGenerator.getFirstUpdatedSince(changedSince);
+      int count = 0;
+      boolean separator = false;
+
+      for(String entity : entityNames.split(",")) {
+         final List<Integer> ids = new ArrayList<>();
+
+         for(int id = first; id <= entityCount && ids.size() < CDC_LIMIT; id++) {
+            ids.add(id);
+         }
+
+         json.append(separator ? "," : "");
+         appendEntities(json, entity.trim(), ids, 1);
+         count += ids.size();
+         separator = true;
+      }
+
+      json.append("]}]}");
+      return count;
+   }
+
+   private boolean isRateLimited(String realm) {
+      if(requestsPerSecond <= 0) {
+         return false;
+      }
+
+      final long second = System.currentTimeMillis() / 1000;
+      final long[] window = windows.computeIfAbsent(realm, key -> new long[2]);
+
+      synchronized(window) {
+         if(window[0] != second) {
+            window[0] = second;
+            window[1] = 0;
+         }
+
+         return ++window[1] > requestsPerSecond;
+      }
+   }
+
+   private String getDiscoveryDocument() {
+      final String url = getServerUrl();
+      return "{\"issuer\":\"" + url + "\"," +
+         "\"authorization_endpoint\":\"" + url + "/connect/oauth2\"," +
+         "\"token_endpoint\":\"" + url + TOKEN_PATH + "\"," +
+         "\"revocation_endpoint\":\"" + url + "/oauth2/v1/tokens/revoke\"," +
+         "\"userinfo_endpoint\":\"" + url + "/v1/openid_connect/userinfo\"," +
+         "\"jwks_uri\":\"" + url + "/oauth2/v1/keys\"}";
+   }
+
+   private static String fault(String message, String code) {
+      return "{\"Fault\":{\"Error\":[{\"Message\":\"" + message.replace("\"", "'") +
+         "\",\"code\":\"" + code + "\"}],\"type\":\"SERVICE\"},\"time\":\"" +
+         OffsetDateTime.now() + "\"}";
+   }
+
+   private static Map<String, String> getParameters(HttpExchange exchange)
+      throws UnsupportedEncodingException
+   {
+      final Map<String, String> parameters = new HashMap<>();
+      final String query = exchange.getRequestURI().getRawQuery();
+
+      if(query != null) {
+         for(String parameter : query.split("&")) {
+            final int index = parameter.indexOf('=');
+
+            if(index > 0) {
+               parameters.put(URLDecoder.decode(parameter.substring(0, index), "UTF-8"),
+                              URLDecoder.decode(parameter.substring(index + 1), "UTF-8"));
+            }
+         }
+      }
+
+      return parameters;
+   }
+
+   private static byte[] readBody(HttpExchange exchange) throws IOException {
+      InputStream input = exchange.getRequestBody();
+
+      if("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+         input = new GZIPInputStream(input);
+      }
+
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+
+      for(int read; (read = input.read(buffer)) != -1; ) {
+         body.write(buffer, 0, read);
+      }
+
+      return body.toByteArray();
+   }
+
+   private static void send(HttpExchange exchange, int status, String json) throws IOException {
+      final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+      exchange.getResponseHeaders().set("intuit_tid", UUID.randomUUID().toString());
+      exchange.sendResponseHeaders(status, bytes.length);
+
+      try(OutputStream output = exchange.getResponseBody()) {
+         output.write(bytes);
+      }
+   }
+
+   private static void sleep(long micros) {
+      if(micros > 0) {
+         try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+         }
+         catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   private static String unescapeXml(String text) {
+      return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                 .replace("&apos;", "'").replace("&amp;", "&");
+   }
+
+   private static String unescapeJson(String text) {
+      final StringBuilder result = new StringBuilder();
+
+      for(int i = 0; i < text.length(); i++) {
+         final char c = text.charAt(i);
+
+         if(c == '\\' && i + 1 < text.length()) {
+            final char next = text.charAt(++i);
+
+            if(next == 'u' && i + 4 < text.length()) {
+               result.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+               i += 4;
+            }
+            else {
+               result.append(next == 'n' ? '\n' : next == 't' ? '\t' : next);
+            }
+         }
+         else {
+            result.append(c);
+         }
+      }
+
+      return result.toString();
+   }
+
+   private static final String DISCOVERY_PATH = "/.well-known/openid_configuration";
+   private static final String TOKEN_PATH = "/oauth2/v1/tokens/bearer";
+   private static final int CDC_LIMIT = 1000;
+   private static final Pattern COMPANY_PATH = Pattern.compile("/v3/company/([^/]+)/(\\w+)");
+   private static final Pattern XML_BATCH_ITEM = Pattern.compile(
+      "<BatchItemRequest[^>]*bId=\"([^\"]*)\"[^>]*>\\s*<Query>(.*?)</Query>", Pattern.DOTALL);
+   private static final Pattern JSON_BATCH_ITEM = Pattern.compile("\\{[^{}]*\"bId\"[^{}]*}");
+   private static final Pattern JSON_BID = Pattern.compile("\"bId\"\\s*:\\s*\"([^\"]*)\"");
+   private static final Pattern JSON_QUERY =
+      Pattern.compile("\"Query\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+   private final int entityCount;
+   private final EntityGenerator generator;
+   private final long latencyMillis;
+   private final long microsPerEntity;
+   private final int requestsPerSecond;
+   private final int maxConcurrent;
+   private final ExecutorService executor;
+   private final HttpServer server;
+   private final AtomicLong requests = new AtomicLong();
+   private final AtomicLong throttled = new AtomicLong();
+   private final AtomicLong entities = new AtomicLong();
+   private final AtomicLong tokens = new AtomicLong();
+   private final ConcurrentMap<String, AtomicInteger> concurrent = new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, long[]> windows = new ConcurrentHashMap<>();
+}
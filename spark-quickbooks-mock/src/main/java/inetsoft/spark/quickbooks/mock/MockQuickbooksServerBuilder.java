@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.mock;
+
+import java.io.IOException;
+
+public class MockQuickbooksServerBuilder {
+   /**
+    * @param port the port to listen on, 0 for any free port
+    */
+   public MockQuickbooksServerBuilder setPort(int port) {
+      this.port = port;
+      return this;
+   }
+
+   /**
+    * @param entityCount the number of entities of every entity type
+    */
+   public MockQuickbooksServerBuilder setEntityCount(int entityCount) {
+      this.entityCount = entityCount;
+      return this;
+   }
+
+   /**
+    * @param entityBytes the approximate size of the JSON of each entity
+    */
+   public MockQuickbooksServerBuilder setEntityBytes(int entityBytes) {
+      this.entityBytes = entityBytes;
+      return this;
+   }
+
+   /**
+    * @param paddingField the string property that pads the entities to their size, which must be
+    *                     a property of the entities that are read, e.g. PrivateNote of Invoice
+    */
+   public MockQuickbooksServerBuilder setPaddingField(String paddingField) {
+      this.paddingField = paddingField;
+      return this;
+   }
+
+   /**
+    * @param latencyMillis the time taken by every API request before the response is sent
+    */
+   public MockQuickbooksServerBuilder setLatencyMillis(long latencyMillis) {
+      this.latencyMillis = latencyMillis;
+      return this;
+   }
+
+   /**
+    * @param microsPerEntity the additional time taken for each entity in a response
+    */
+   public MockQuickbooksServerBuilder setMicrosPerEntity(long microsPerEntity) {
+      this.microsPerEntity = microsPerEntity;
+      return this;
+   }
+
+   /**
+    * @param requestsPerSecond the requests of a company allowed each second before requests are
+    *                          throttled, 0 for no limit
+    */
+   public MockQuickbooksServerBuilder setRequestsPerSecond(int requestsPerSecond) {
+      this.requestsPerSecond = requestsPerSecond;
+      return this;
+   }
+
+   /**
+    * @param maxConcurrent the concurrent requests of a company allowed before requests are
+    *                      throttled, 0 for no limit
+    */
+   public MockQuickbooksServerBuilder setMaxConcurrent(int maxConcurrent) {
+      this.maxConcurrent = maxConcurrent;
+      return this;
+   }
+
+   /**
+    * Set a property by the name of its setter without the prefix, e.g. entityCount=1000
+    */
+   public MockQuickbooksServerBuilder set(String name, String value) {
+      switch(name) {
+         case "port":
+            return setPort(Integer.parseInt(value));
+         case "entityCount":
+            return setEntityCount(Integer.parseInt(value));
+         case "entityBytes":
+            return setEntityBytes(Integer.parseInt(value));
+         case "paddingField":
+            return setPaddingField(value);
+         case "latencyMillis":
+            return setLatencyMillis(Long.parseLong(value));
+         case "microsPerEntity":
+            return setMicrosPerEntity(Long.parseLong(value));
+         case "requestsPerSecond":
+            return setRequestsPerSecond(Integer.parseInt(value));
+         case "maxConcurrent":
+            return setMaxConcurrent(Integer.parseInt(value));
+         default:
+            throw new IllegalArgumentException("Unknown mock server property: " + name);
+      }
+   }
+
+   public MockQuickbooksServer start() throws IOException {
+      return new MockQuickbooksServer(port, entityCount,
+                                      new EntityGenerator(entityBytes, paddingField),
+                                      latencyMillis, microsPerEntity, requestsPerSecond,
+                                      maxConcurrent);
+   }
+
+   int getEntityBytes() {
+      return entityBytes;
+   }
+
+   int getEntityCount() {
+      return entityCount;
+   }
+
+   private int port;
+   private int entityCount = 10000;
+   private int entityBytes = 1000;
+   private String paddingField = "PrivateNote";
+   private long latencyMillis;
+   private long microsPerEntity;
+   private int requestsPerSecond;
+   private int maxConcurrent;
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.mock;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.function.ForeachFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the throughput of full Spark reads of an entity served by the mock server. Arguments
+ * starting with "mock." are mock server properties, "iterations" is the number of timed reads
+ * and the other arguments are data source options, e.g.
+ * <pre>
+ * spark-submit --class inetsoft.spark.quickbooks.mock.MockThroughputRunner \
+ *    --jars spark-quickbooks-bundle.jar,spark-quickbooks-api.jar spark-quickbooks-mock.jar \
+ *    mock.entityCount=100000 mock.latencyMillis=200 entity=Invoice prefetchDepth=2
+ * </pre>
+ */
+public class MockThroughputRunner {
+   public static void main(String[] args) throws Exception {
+      final MockQuickbooksServerBuilder builder = new MockQuickbooksServerBuilder();
+      final Map<String, String> options = new HashMap<>();
+      int iterations = 3;
+
+      for(String arg : args) {
+         final int index = arg.indexOf('=');
+         final String name = arg.substring(0, index);
+         final String value = arg.substring(index + 1);
+
+         if(name.startsWith("mock.")) {
+            builder.set(name.substring(5), value);
+         }
+         else if(name.equals("iterations")) {
+            iterations = Integer.parseInt(value);
+         }
+         else {
+            options.put(name, value);
+         }
+      }
+
+      final SparkConf conf = new SparkConf().setIfMissing("spark.master", "local[*]")
+                                            .setIfMissing("spark.app.name", "QuickBooks mock");
+
+      try(MockQuickbooksServer server = builder.start()) {
+         final SparkSession spark = SparkSession.builder().config(conf).getOrCreate();
+         options.putIfAbsent("entity", "Invoice");
+         options.putIfAbsent("companyId", "mock-company");
+         options.put("baseUrl", server.getBaseUrl());
+         options.put("discoveryUrl", server.getDiscoveryUrl());
+
+         // use a fixed token unless the OAuth flow is being measured
+         if(!options.containsKey("clientId")) {
+            options.putIfAbsent("accessToken", "mock-token");
+         }
+
+         for(int i = 1; i <= iterations; i++) {
+            final long requests = server.getRequestCount();
+            final long throttled = server.getThrottledCount();
+            final long start = System.nanoTime();
+            spark.read().format("quickbooks").options(options).load()
+                 .foreach((ForeachFunction<Row>) row -> { });
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            final long rows = builder.getEntityCount();
+
+            System.out.printf(
+               "run %d: %d rows in %.2fs, %.0f rows/s, %.2f MB/s, %d requests, %d throttled%n",
+               i, rows, seconds, rows / seconds,
+               rows * (double) builder.getEntityBytes() / seconds / 1024 / 1024,
+               server.getRequestCount() - requests, server.getThrottledCount() - throttled);
+         }
+
+         spark.stop();
+      }
+   }
+}
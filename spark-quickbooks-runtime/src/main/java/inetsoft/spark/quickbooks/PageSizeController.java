@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import com.intuit.ipp.data.Error;
+import com.intuit.ipp.exception.FMSException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.net.SocketTimeoutException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tunes the MAXRESULTS of each page and the number of pages in each batch operation of an
+ * entity. Batches that take longer than the target time or fail with a timeout or server error
+ * shrink the batch first and then the pages, fast batches grow them back up to the API limits.
+ * The tuned sizes are saved in the QuickBooks lib directory so the next run starts from them.
+ */
+public class PageSizeController {
+   private PageSizeController(String key, int pageSize, int batchSize) {
+      this.key = key;
+      this.pageSize = pageSize;
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * Get the controller of an entity with the sizes saved by previous runs
+    */
+   public static PageSizeController get(String companyId, String entity) {
+      final String key = companyId + "." + entity;
+      final Properties sizes = loadSizes();
+      return new PageSizeController(
+         key, getSize(sizes, key + PAGE_SIZE, MIN_PAGE_SIZE, MAX_PAGE_SIZE),
+         getSize(sizes, key + BATCH_SIZE, 1, QueryExecutorService.BATCH_LIMIT));
+   }
+
+   public int getPageSize() {
+      return pageSize;
+   }
+
+   public int getBatchSize() {
+      return batchSize;
+   }
+
+   /**
+    * Record a batch that succeeded
+    */
+   public void succeeded(long elapsedMillis) {
+      if(elapsedMillis > TARGET_BATCH_MILLIS) {
+         shrink();
+      }
+      else if(elapsedMillis < TARGET_BATCH_MILLIS / 3) {
+         grow();
+      }
+   }
+
+   /**
+    * Record a batch that failed
+    *
+    * @return true if the batch can be retried with the smaller sizes
+    */
+   public boolean failed(FMSException e) {
+      return failed(isSizeError(e));
+   }
+
+   /**
+    * Record a raw query batch that failed
+    *
+    * @return true if the batch can be retried with the smaller sizes
+    */
+   public boolean failed(IOException e) {
+      return failed(isSizeError(e));
+   }
+
+   private boolean failed(boolean sizeError) {
+      if(!sizeError || ++failures > MAX_FAILURES) {
+         return false;
+      }
+
+      final int oldPageSize = pageSize;
+      final int oldBatchSize = batchSize;
+      shrink();
+      return pageSize != oldPageSize || batchSize != oldBatchSize;
+   }
+
+   /**
+    * Save the sizes if they have changed
+    */
+   public void save() {
+      if(!changed) {
+         return;
+      }
+
+      synchronized(PageSizeController.class) {
+         final Properties sizes = loadSizes();
+         sizes.setProperty(key + PAGE_SIZE, String.valueOf(pageSize));
+         sizes.setProperty(key + BATCH_SIZE, String.valueOf(batchSize));
+         final File file = getSizesFile();
+         final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+         try(OutputStream out = new FileOutputStream(tempFile)) {
+            sizes.store(out, "QuickBooks page sizes");
+         }
+         catch(IOException e) {
+            LOG.warn("Failed to save QuickBooks page sizes", e);
+            return;
+         }
+
+         try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            changed = false;
+         }
+         catch(IOException e) {
+            LOG.warn("Failed to save QuickBooks page sizes", e);
+         }
+      }
+   }
+
+   /**
+    * Check if QuickBooks is throttling requests, throttled requests should be retried after a
+    * wait rather than with smaller sizes
+    */
+   public static boolean isThrottled(FMSException e) {
+      final List<Error> errors = e.getErrorList();
+
+      if(errors != null && errors.stream().anyMatch(error -> THROTTLE_CODE.equals(error.getCode()))) {
+         return true;
+      }
+
+      return isThrottled(e.getMessage());
+   }
+
+   /**
+    * Check if the message of a failed request or fault says QuickBooks is throttling requests
+    */
+   public static boolean isThrottled(String message) {
+      return message != null && (message.contains("429") || message.contains("Throttle"));
+   }
+
+   private void shrink() {
+      if(batchSize > 1) {
+         batchSize = Math.max(1, batchSize / 2);
+      }
+      else {
+         pageSize = Math.max(MIN_PAGE_SIZE, pageSize / 2);
+      }
+
+      changed = true;
+      LOG.debug("Shrinking QuickBooks batches of {} to {} page(s) of {}", key, batchSize, pageSize);
+   }
+
+   private void grow() {
+      if(pageSize < MAX_PAGE_SIZE) {
+         pageSize = Math.min(MAX_PAGE_SIZE, pageSize * 2);
+      }
+      else if(batchSize < QueryExecutorService.BATCH_LIMIT) {
+         batchSize = Math.min(QueryExecutorService.BATCH_LIMIT, batchSize * 2);
+      }
+      else {
+         return;
+      }
+
+      changed = true;
+      LOG.debug("Growing QuickBooks batches of {} to {} page(s) of {}", key, batchSize, pageSize);
+   }
+
+   /**
+    * Timeouts and server error statuses are retried with smaller batches, other errors are not
+    * caused by the size of the batch
+    */
+   private static boolean isSizeError(FMSException e) {
+      if(isThrottled(e)) {
+         return false;
+      }
+
+      final List<Error> errors = e.getErrorList();
+
+      if(errors != null &&
+         errors.stream().anyMatch(error -> isServerError(getStatusCode(error.getDetail()))))
+      {
+         return true;
+      }
+
+      return isServerError(getStatusCode(e.getMessage())) || isTimeout(e);
+   }
+
+   /**
+    * Timeouts and server error statuses of raw requests are retried with smaller batches
+    */
+   private static boolean isSizeError(IOException e) {
+      if(e instanceof RawQueryExecutorService.StatusException) {
+         return isServerError(((RawQueryExecutorService.StatusException) e).getStatus());
+      }
+
+      return isTimeout(e);
+   }
+
+   /**
+    * Get the HTTP status in the detail of a QuickBooks error, e.g.
+    * message=Internal Server Error; errorCode=003100; statusCode=500
+    *
+    * @return the status, or -1 if the detail doesn't have one
+    */
+   static int getStatusCode(String detail) {
+      final Matcher matcher = detail == null ? null : STATUS_CODE.matcher(detail);
+      return matcher != null && matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+   }
+
+   private static boolean isServerError(int status) {
+      return status >= 500 && status < 600;
+   }
+
+   private static boolean isTimeout(Throwable e) {
+      for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+         if(cause instanceof SocketTimeoutException) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static int getSize(Properties sizes, String key, int min, int max) {
+      try {
+         return Math.max(min, Math.min(max, Integer.parseInt(sizes.getProperty(key))));
+      }
+      catch(NumberFormatException e) {
+         return max;
+      }
+   }
+
+   private static Properties loadSizes() {
+      final Properties sizes = new Properties();
+      final File file = getSizesFile();
+
+      if(file.exists()) {
+         try(InputStream in = new FileInputStream(file)) {
+            sizes.load(in);
+         }
+         catch(IOException e) {
+            LOG.warn("Failed to read QuickBooks page sizes", e);
+         }
+      }
+
+      return sizes;
+   }
+
+   private static File getSizesFile() {
+      return new File(QuickbooksUtil.getQbLibDir(), "page-sizes.properties");
+   }
+
+   private static final String PAGE_SIZE = ".pageSize";
+   private static final String BATCH_SIZE = ".batchSize";
+   private static final int MIN_PAGE_SIZE = 50;
+   // the largest MAXRESULTS accepted by the query API
+   private static final int MAX_PAGE_SIZE = 1000;
+   private static final long TARGET_BATCH_MILLIS = 15000L;
+   private static final int MAX_FAILURES = 5;
+   // QuickBooks error code returned when the request rate limit is exceeded
+   private static final String THROTTLE_CODE = "3001";
+   private static final Pattern STATUS_CODE = Pattern.compile("\\bstatusCode=(\\d{3})\\b");
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final String key;
+   private int pageSize;
+   private int batchSize;
+   private int failures;
+   private boolean changed;
+}
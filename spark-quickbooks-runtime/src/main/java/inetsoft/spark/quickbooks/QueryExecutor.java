@@ -19,7 +19,38 @@ package inetsoft.spark.quickbooks;
 import com.intuit.ipp.exception.FMSException;
 import com.intuit.ipp.services.QueryResult;
 
+import java.util.List;
+import java.util.Map;
+
 public interface QueryExecutor {
-   QueryResult execute(String token, String companyId,
-                       boolean production, String entity, boolean schemaOnly) throws FMSException;
+   QueryResult execute(String token, String companyId, boolean production, String entity,
+                       String where, boolean schemaOnly) throws FMSException;
+
+   /**
+    * Execute the query of a range of the entities
+    *
+    * @param fields        the fields of the entities that are selected, or an empty list to
+    *                      select every field
+    * @param orderBy       the fields the entities are sorted by, e.g. TxnDate DESC, or null
+    * @param startPosition the 1 based position of the first entity
+    * @param maxResults    the number of entities in the range, 0 to read every entity from the
+    *                      start position
+    */
+   QueryResult execute(String token, String companyId, boolean production, String entity,
+                       List<String> fields, String where, String orderBy, int startPosition,
+                       int maxResults) throws FMSException;
+
+   /**
+    * Execute the queries of the entities with some IDs
+    *
+    * @param where the condition the entities must also match, or null
+    */
+   QueryResult execute(String token, String companyId, boolean production, String entity,
+                       String where, List<String> ids) throws FMSException;
+
+   int count(String token, String companyId, boolean production, String entity, String where)
+      throws FMSException;
+
+   Map<String, QueryResult> execute(String token, String companyId, boolean production,
+                                    List<String> entities, boolean schemaOnly) throws FMSException;
 }
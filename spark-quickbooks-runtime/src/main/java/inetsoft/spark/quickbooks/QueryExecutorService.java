@@ -25,53 +25,317 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class QueryExecutorService implements QueryExecutor {
+   /**
+    * @param baseUrl the base URL of the company API, or null to use the URL of the QuickBooks
+    *                environment
+    */
+   public QueryExecutorService(String baseUrl) {
+      this.baseUrl = baseUrl;
+   }
+
    @Override
-   public QueryResult execute(String token, String companyId, boolean production,
-                              String entity, boolean schemaOnly) throws FMSException
+   public QueryResult execute(String token, String companyId, boolean production, String entity,
+                              String where, boolean schemaOnly) throws FMSException
    {
-      final String apiUrl = production ? productionUrl : sandboxUrl;
-      Config.setProperty(Config.BASE_URL_QBO, apiUrl);
-      final OAuth2Authorizer oauth = new OAuth2Authorizer(token);
-      final Context context = new Context(oauth, ServiceType.QBO, companyId);
-      final DataService service = new DataService(context);
+      final DataService service = createDataService(token, companyId, production);
+      // the schema is sampled from the first entity regardless of any filter
+      final String whereClause = schemaOnly ? "" : getWhereClause(where);
 
       // first execute a count query to determine pagination
-      final int totalCount = schemaOnly ? 1 : getTotalCount(service, entity);
+      final int totalCount =
+         schemaOnly ? 1 : getTotalCount(service, companyId, entity, whereClause);
+      return executePages(service, companyId, entity, "*", whereClause, 1, totalCount);
+   }
+
+   @Override
+   public QueryResult execute(String token, String companyId, boolean production, String entity,
+                              List<String> fields, String where, String orderBy,
+                              int startPosition, int maxResults) throws FMSException
+   {
+      final DataService service = createDataService(token, companyId, production);
+      final String whereClause = getWhereClause(where);
+      // the count is only needed when the range is open ended
+      final int count = maxResults > 0 ?
+         maxResults : getTotalCount(service, companyId, entity, whereClause) - startPosition + 1;
+      return executePages(service, companyId, entity, getSelectList(fields),
+                          whereClause + getOrderByClause(orderBy), startPosition,
+                          Math.max(0, count));
+   }
 
-      // next execute paginated results until complete
+   /**
+    * Execute the paginated queries of a range of entities, batching the pages. The page and
+    * batch sizes are tuned for the entity by a {@link PageSizeController}.
+    *
+    * @param selectList   the selected fields of the queries
+    * @param queryClauses the WHERE and ORDERBY clauses of the queries
+    */
+   private QueryResult executePages(DataService service, String companyId, String entity,
+                                    String selectList, String queryClauses, int firstPosition,
+                                    int totalCount)
+      throws FMSException
+   {
       final QueryResult queryResult = new QueryResult();
-      int startPosition = 1;
-      queryResult.setStartPosition(startPosition);
+      queryResult.setStartPosition(firstPosition);
       queryResult.setTotalCount(totalCount);
       queryResult.setMaxResults(totalCount);
       final ArrayList<IEntity> entities = new ArrayList<>();
-      BatchOperation batchOperation = new BatchOperation();
-      int counter = 0;
+      final PageSizeController sizes = PageSizeController.get(companyId, entity);
+      final int endPosition = firstPosition + totalCount;
+      int startPosition = firstPosition;
+      int throttled = 0;
+
+      try {
+         while(startPosition < endPosition) {
+            final BatchOperation batchOperation = new BatchOperation();
+            int position = startPosition;
+
+            for(int counter = 0; counter < sizes.getBatchSize() && position < endPosition;
+                counter++)
+            {
+               final int maxResults = Math.min(sizes.getPageSize(), endPosition - position);
+               final String query = String.format(
+                  "SELECT %s FROM %s%s STARTPOSITION %d MAXRESULTS %d",
+                  selectList, entity, queryClauses, position, maxResults);
+               batchOperation.addQuery(query, String.valueOf(counter));
+               position += maxResults;
+            }
+
+            final long start = System.currentTimeMillis();
+            final int previousRows = entities.size();
+
+            try {
+               executeBatchOperation(service, entities, batchOperation);
+               final long elapsed = System.currentTimeMillis() - start;
+               sizes.succeeded(elapsed);
+               QuickbooksMetrics.getListener().requestCompleted(
+                  companyId, entity, QuickbooksMetrics.REQUEST_BATCH, elapsed,
+                  batchOperation.getBIds().size(), entities.size() - previousRows, -1);
+               final int requested = position - startPosition;
+               startPosition = position;
+               throttled = 0;
 
-      for(int remaining = totalCount; remaining > 0; remaining -= RESULT_LIMIT) {
-         final int maxResults = Math.min(RESULT_LIMIT, remaining);
-         final String query = String.format("SELECT * FROM %s STARTPOSITION %d MAXRESULTS %d",
-                                            entity,
-                                            startPosition,
-                                            maxResults);
-         batchOperation.addQuery(query, String.valueOf(counter++));
-         startPosition += RESULT_LIMIT;
+               // the entities ended before the range, e.g. a limit larger than the entity
+               if(entities.size() - previousRows < requested) {
+                  break;
+               }
+            }
+            catch(FMSException e) {
+               if(PageSizeController.isThrottled(e) && throttled < MAX_THROTTLE_RETRIES) {
+                  waitForThrottle(e, companyId, entity, throttled++);
+               }
+               else if(!sizes.failed(e)) {
+                  throw e;
+               }
 
-         if(counter % BATCH_LIMIT == 0) {
+               LOG.debug("Retrying QuickBooks query of {} from position {}", entity, startPosition);
+            }
+         }
+      }
+      finally {
+         sizes.save();
+      }
+
+      queryResult.setEntities(entities);
+      return queryResult;
+   }
+
+   /**
+    * Look up entities by ID. The IDs are split into IN lists of IDS_PER_QUERY and the queries
+    * are packed BATCH_LIMIT to a batch operation, so a few thousand IDs take one request.
+    */
+   @Override
+   public QueryResult execute(String token, String companyId, boolean production, String entity,
+                              String where, List<String> ids) throws FMSException
+   {
+      final DataService service = createDataService(token, companyId, production);
+      final String andClause = where == null || where.isEmpty() ? "" : " AND " + where;
+      final ArrayList<IEntity> entities = new ArrayList<>();
+      int throttled = 0;
+
+      for(int batchStart = 0; batchStart < ids.size(); ) {
+         final BatchOperation batchOperation = new BatchOperation();
+         int position = batchStart;
+
+         for(int counter = 0; counter < BATCH_LIMIT && position < ids.size(); counter++) {
+            final List<String> queryIds =
+               ids.subList(position, Math.min(position + IDS_PER_QUERY, ids.size()));
+            final String idList = queryIds.stream()
+                                          .map(QueryExecutorService::quote)
+                                          .collect(Collectors.joining(", "));
+            final String query = String.format("SELECT * FROM %s WHERE Id IN (%s)%s MAXRESULTS %d",
+                                               entity, idList, andClause, queryIds.size());
+            batchOperation.addQuery(query, String.valueOf(counter));
+            position += queryIds.size();
+         }
+
+         final long start = System.currentTimeMillis();
+         final int previousRows = entities.size();
+
+         try {
             executeBatchOperation(service, entities, batchOperation);
-            batchOperation = new BatchOperation();
+            QuickbooksMetrics.getListener().requestCompleted(
+               companyId, entity, QuickbooksMetrics.REQUEST_BATCH,
+               System.currentTimeMillis() - start, batchOperation.getBIds().size(),
+               entities.size() - previousRows, -1);
+            batchStart = position;
+            throttled = 0;
+         }
+         catch(FMSException e) {
+            if(!PageSizeController.isThrottled(e) || throttled >= MAX_THROTTLE_RETRIES) {
+               throw e;
+            }
+
+            // entities of a failed batch aren't added, the batch is simply sent again
+            waitForThrottle(e, companyId, entity, throttled++);
          }
       }
 
-      executeBatchOperation(service, entities, batchOperation);
+      final QueryResult queryResult = new QueryResult();
+      queryResult.setStartPosition(1);
+      queryResult.setTotalCount(entities.size());
+      queryResult.setMaxResults(entities.size());
       queryResult.setEntities(entities);
       return queryResult;
    }
 
+   private void waitForThrottle(FMSException e, String companyId, String entity, int attempt)
+      throws FMSException
+   {
+      final long wait = THROTTLE_BACKOFF_MILLIS << attempt;
+      LOG.debug("QuickBooks request throttled, retrying in {}ms", wait);
+      QuickbooksMetrics.getListener().throttled(companyId, entity, wait);
+
+      try {
+         Thread.sleep(wait);
+      }
+      catch(InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw e;
+      }
+   }
+
+   @Override
+   public int count(String token, String companyId, boolean production, String entity,
+                    String where) throws FMSException
+   {
+      final DataService service = createDataService(token, companyId, production);
+      final Integer totalCount = countEntities(service, companyId, entity, getWhereClause(where));
+      return totalCount != null ? totalCount : 0;
+   }
+
+   /**
+    * Execute the queries of several entities together. The count queries of all entities are
+    * batched first, then the pages of every entity are packed into shared batch operations so
+    * small entities don't each cost their own round trip. An entity with a faulted query is
+    * queried again on its own, and left out of the results if that query fails too.
+    */
+   @Override
+   public Map<String, QueryResult> execute(String token, String companyId, boolean production,
+                                           List<String> entities, boolean schemaOnly)
+      throws FMSException
+   {
+      final DataService service = createDataService(token, companyId, production);
+      // the entities with a faulted count or page query
+      final Set<String> faulted = new HashSet<>();
+      final Map<String, Integer> totalCounts = schemaOnly ?
+         entities.stream().collect(Collectors.toMap(e -> e, e -> 1, (a, b) -> a)) :
+         getTotalCounts(service, companyId, entities, faulted);
+
+      // the batch ID of each page query mapped to the entity it belongs to
+      final Map<String, String> pageEntities = new HashMap<>();
+      final Map<String, List<IEntity>> entityLists = new LinkedHashMap<>();
+      BatchOperation batchOperation = new BatchOperation();
+      int counter = 0;
+
+      for(String entity : entities) {
+         entityLists.put(entity, new ArrayList<>());
+
+         if(faulted.contains(entity)) {
+            continue;
+         }
+
+         int startPosition = 1;
+
+         for(int remaining = totalCounts.get(entity); remaining > 0; remaining -= RESULT_LIMIT) {
+            final int maxResults = Math.min(RESULT_LIMIT, remaining);
+            final String query = String.format("SELECT * FROM %s STARTPOSITION %d MAXRESULTS %d",
+                                               entity,
+                                               startPosition,
+                                               maxResults);
+            final String bId = String.valueOf(counter++);
+            batchOperation.addQuery(query, bId);
+            pageEntities.put(bId, entity);
+            startPosition += RESULT_LIMIT;
+
+            if(counter % BATCH_LIMIT == 0) {
+               executeSharedBatchOperation(service, companyId, pageEntities, entityLists, faulted,
+                                           batchOperation);
+               batchOperation = new BatchOperation();
+            }
+         }
+      }
+
+      executeSharedBatchOperation(service, companyId, pageEntities, entityLists, faulted,
+                                  batchOperation);
+      final Map<String, QueryResult> results = new LinkedHashMap<>();
+
+      for(Map.Entry<String, List<IEntity>> entry : entityLists.entrySet()) {
+         final String entity = entry.getKey();
+
+         if(faulted.contains(entity)) {
+            try {
+               final int totalCount =
+                  schemaOnly ? 1 : getTotalCount(service, companyId, entity, "");
+               results.put(entity,
+                           executePages(service, companyId, entity, "*", "", 1, totalCount));
+            }
+            catch(FMSException e) {
+               LOG.warn("Failed to query QuickBooks entity {}, it is left out of the results",
+                        entity, e);
+            }
+
+            continue;
+         }
+
+         final int totalCount = totalCounts.get(entity);
+         final QueryResult queryResult = new QueryResult();
+         queryResult.setStartPosition(1);
+         queryResult.setTotalCount(totalCount);
+         queryResult.setMaxResults(totalCount);
+         queryResult.setEntities(entry.getValue());
+         results.put(entity, queryResult);
+      }
+
+      return results;
+   }
+
+   /**
+    * @param baseUrl the configured base URL, or null to use the URL of the environment
+    *
+    * @return the base URL of the company API in the production or sandbox environment
+    */
+   static String getBaseUrl(String baseUrl, boolean production) {
+      if(baseUrl != null) {
+         return baseUrl;
+      }
+
+      return production ? productionUrl : sandboxUrl;
+   }
+
+   private DataService createDataService(String token, String companyId, boolean production)
+      throws FMSException
+   {
+      Config.setProperty(Config.BASE_URL_QBO, getBaseUrl(baseUrl, production));
+      final OAuth2Authorizer oauth = new OAuth2Authorizer(token);
+      final Context context = new Context(oauth, ServiceType.QBO, companyId);
+      return new DataService(context);
+   }
+
    private void executeBatchOperation(DataService service,
                                       ArrayList<IEntity> entities,
                                       BatchOperation batchOperation) throws FMSException
@@ -84,27 +348,232 @@ public class QueryExecutorService implements QueryExecutor {
          service.executeBatch(batchOperation);
 
          for(String bId : bIds) {
-            final QueryResult queryResponse = batchOperation.getQueryResponse(bId);
+            final QueryResult queryResponse = getBatchQueryResponse(batchOperation, bId);
             entities.addAll(queryResponse.getEntities());
          }
       }
    }
 
+   /**
+    * Execute a batch of the pages of several entities. The pages of an entity with a faulted
+    * page query are not added, the entity is added to the faulted entities instead.
+    *
+    * @param pageEntities the entity of each batch ID
+    * @param entityLists  the list of each entity the pages are added to
+    * @param faulted      the entities with a faulted query
+    */
+   private void executeSharedBatchOperation(DataService service, String companyId,
+                                            Map<String, String> pageEntities,
+                                            Map<String, List<IEntity>> entityLists,
+                                            Set<String> faulted,
+                                            BatchOperation batchOperation) throws FMSException
+   {
+      final List<String> bIds = batchOperation.getBIds();
+
+      if(bIds.size() > 0) {
+         LOG.debug("Executing shared QuickBooks batch of {} queries", bIds.size());
+         long start = System.currentTimeMillis();
+
+         for(int throttled = 0; ; ) {
+            try {
+               service.executeBatch(batchOperation);
+               break;
+            }
+            catch(FMSException e) {
+               if(!PageSizeController.isThrottled(e) || throttled >= MAX_THROTTLE_RETRIES) {
+                  throw e;
+               }
+
+               // the shared batch is sent again
+               waitForThrottle(e, companyId, SHARED_ENTITY, throttled++);
+               start = System.currentTimeMillis();
+            }
+         }
+
+         long rows = 0;
+
+         for(String bId : bIds) {
+            final String entity = pageEntities.remove(bId);
+
+            if(batchOperation.isFault(bId)) {
+               LOG.debug("Shared batch query of {} failed: {}", entity,
+                         getFaultMessage(batchOperation, bId));
+               faulted.add(entity);
+            }
+            else if(!faulted.contains(entity)) {
+               final List<IEntity> queryEntities =
+                  batchOperation.getQueryResponse(bId).getEntities();
+               entityLists.get(entity).addAll(queryEntities);
+               rows += queryEntities.size();
+            }
+         }
+
+         // the pages of a shared batch belong to several entities
+         QuickbooksMetrics.getListener().requestCompleted(
+            companyId, SHARED_ENTITY, QuickbooksMetrics.REQUEST_BATCH,
+            System.currentTimeMillis() - start, bIds.size(), rows, -1);
+      }
+   }
+
    /**
     * Get the total number of entities in the query response
     */
-   private int getTotalCount(DataService service, String entity) throws FMSException {
-      final QueryResult countResult = service.executeQuery("SELECT COUNT(*) FROM " + entity);
+   private int getTotalCount(DataService service, String companyId, String entity,
+                             String whereClause) throws FMSException
+   {
+      final Integer totalCount = countEntities(service, companyId, entity, whereClause);
+      return totalCount != null ? totalCount : 1;
+   }
+
+   private Integer countEntities(DataService service, String companyId, String entity,
+                                 String whereClause) throws FMSException
+   {
+      final long start = System.currentTimeMillis();
+      final QueryResult countResult =
+         service.executeQuery("SELECT COUNT(*) FROM " + entity + whereClause);
       final Integer totalCount = countResult.getTotalCount();
+      QuickbooksMetrics.getListener().requestCompleted(
+         companyId, entity, QuickbooksMetrics.REQUEST_COUNT, System.currentTimeMillis() - start,
+         1, 0, -1);
       LOG.debug("QuickBooks count returned {} result(s)", totalCount);
-      return totalCount != null ? totalCount : 1;
+      return totalCount;
+   }
+
+   private String getWhereClause(String where) {
+      return where == null || where.isEmpty() ? "" : " WHERE " + where;
+   }
+
+   private static String quote(String value) {
+      return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+   }
+
+   /**
+    * @param fields the fields to select, e.g. Id or MetaData.LastUpdatedTime
+    *
+    * @return the select list of a query, * to select every field
+    */
+   static String getSelectList(List<String> fields) {
+      if(fields == null || fields.isEmpty()) {
+         return "*";
+      }
+
+      for(String field : fields) {
+         if(!FIELD.matcher(field).matches()) {
+            throw new IllegalArgumentException("Invalid query field: " + field);
+         }
+      }
+
+      return String.join(", ", fields);
+   }
+
+   /**
+    * @param orderBy the fields to sort by, each optionally followed by ASC or DESC
+    *
+    * @return the ORDERBY clause of a query, or an empty string to not sort the entities
+    */
+   static String getOrderByClause(String orderBy) {
+      if(orderBy == null || orderBy.trim().isEmpty()) {
+         return "";
+      }
+
+      if(!ORDER_BY.matcher(orderBy.trim()).matches()) {
+         throw new IllegalArgumentException("Invalid orderBy option: " + orderBy);
+      }
+
+      return " ORDERBY " + orderBy.trim();
+   }
+
+   /**
+    * Get the total number of entities of each entity, batching the count queries
+    *
+    * @param faulted the entities with a faulted count query are added to this set
+    */
+   private Map<String, Integer> getTotalCounts(DataService service, String companyId,
+                                               List<String> entities, Set<String> faulted)
+      throws FMSException
+   {
+      final Map<String, Integer> totalCounts = new HashMap<>();
+      int throttled = 0;
+
+      for(int i = 0; i < entities.size(); ) {
+         final List<String> batchEntities =
+            entities.subList(i, Math.min(i + BATCH_LIMIT, entities.size()));
+         final BatchOperation batchOperation = new BatchOperation();
+
+         for(String entity : batchEntities) {
+            batchOperation.addQuery("SELECT COUNT(*) FROM " + entity, entity);
+         }
+
+         final long start = System.currentTimeMillis();
+
+         try {
+            service.executeBatch(batchOperation);
+
+            for(String entity : batchEntities) {
+               if(batchOperation.isFault(entity)) {
+                  LOG.debug("Count query of {} failed: {}", entity,
+                            getFaultMessage(batchOperation, entity));
+                  faulted.add(entity);
+                  continue;
+               }
+
+               final Integer totalCount = batchOperation.getQueryResponse(entity).getTotalCount();
+               LOG.debug("QuickBooks count of {} returned {} result(s)", entity, totalCount);
+               totalCounts.put(entity, totalCount != null ? totalCount : 1);
+            }
+         }
+         catch(FMSException e) {
+            if(!PageSizeController.isThrottled(e) || throttled >= MAX_THROTTLE_RETRIES) {
+               throw e;
+            }
+
+            // the count batch is sent again
+            waitForThrottle(e, companyId, SHARED_ENTITY, throttled++);
+            continue;
+         }
+
+         QuickbooksMetrics.getListener().requestCompleted(
+            companyId, SHARED_ENTITY, QuickbooksMetrics.REQUEST_COUNT,
+            System.currentTimeMillis() - start, batchEntities.size(), 0, -1);
+         i += batchEntities.size();
+         throttled = 0;
+      }
+
+      return totalCounts;
+   }
+
+   private QueryResult getBatchQueryResponse(BatchOperation batchOperation, String bId)
+      throws FMSException
+   {
+      if(batchOperation.isFault(bId)) {
+         throw new FMSException("Batch query " + bId + " failed: " +
+                                   getFaultMessage(batchOperation, bId));
+      }
+
+      return batchOperation.getQueryResponse(bId);
+   }
+
+   private String getFaultMessage(BatchOperation batchOperation, String bId) {
+      return batchOperation.getFault(bId).getError().stream()
+                           .map(error -> error.getMessage() + ": " + error.getDetail())
+                           .collect(Collectors.joining("; "));
    }
 
    // max 30 queries per batch operation
    public static final int BATCH_LIMIT = 30;
+   // IDs in the IN list of each lookup query, the query text stays short
+   private static final int IDS_PER_QUERY = 100;
    // max number of results quickbooks can return in 1 call
    private static final int RESULT_LIMIT = 1000;
+   private static final Pattern FIELD = Pattern.compile("[\\w.]+");
+   private static final Pattern ORDER_BY = Pattern.compile(
+      "[\\w.]+(\\s+(ASC|DESC))?(\\s*,\\s*[\\w.]+(\\s+(ASC|DESC))?)*",
+      Pattern.CASE_INSENSITIVE);
+   private static final int MAX_THROTTLE_RETRIES = 5;
+   private static final String SHARED_ENTITY = "shared";
+   private static final long THROTTLE_BACKOFF_MILLIS = 1000L;
    private static final String sandboxUrl = "https://sandbox-quickbooks.api.intuit.com/v3/company";
    private static final String productionUrl = "https://quickbooks.api.intuit.com/v3/company";
    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final String baseUrl;
 }
@@ -21,28 +21,31 @@ import com.intuit.oauth2.exception.OAuthException;
 import inetsoft.spark.quickbooks.token.TokenStrategy;
 import inetsoft.spark.quickbooks.token.TokenStrategyFactory;
 
+import java.io.IOException;
+import java.util.*;
+
 public class QuickbooksRuntime implements QuickbooksAPI {
    public QuickbooksQueryResult loadData(QuickbooksDataSourceOptions options) {
-      final String accessToken = options.getAccessToken();
-      final String clientId = options.getClientId();
-      final String clientSecret = options.getClientSecret();
-      final String authorizationCode = options.getAuthorizationCode();
       final String companyId = options.getCompanyId();
-      final String redirectUrl = options.getRedirectUrl();
       final boolean production = options.isProduction();
       final String entity = options.getEntity();
       final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
 
       try {
          Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-         final TokenStrategy tokenStrategy = TokenStrategyFactory.create(accessToken, clientId,
-                                                                         clientSecret, companyId,
-                                                                         authorizationCode,
-                                                                         production, redirectUrl);
-         final String token = tokenStrategy.getAccessToken();
-         final QueryExecutor queryExecutor = new QueryExecutorService();
-         final QueryResult result = queryExecutor.execute(token, companyId, production,
-                                                          entity, options.isSchemaOnly());
+         final String token = getAccessToken(options);
+         final QueryExecutor queryExecutor = new QueryExecutorService(options.getBaseUrl());
+         final boolean range = options.getMaxResults() > 0 || options.getStartPosition() > 1 ||
+            options.getOrderBy() != null || !options.getFields().isEmpty();
+         final QueryResult result = !options.getIds().isEmpty() && !options.isSchemaOnly() ?
+            queryExecutor.execute(token, companyId, production, entity, options.getWhere(),
+                                  options.getIds()) :
+            range && !options.isSchemaOnly() ?
+            queryExecutor.execute(token, companyId, production, entity, options.getFields(),
+                                  options.getWhere(), options.getOrderBy(),
+                                  options.getStartPosition(), options.getMaxResults()) :
+            queryExecutor.execute(token, companyId, production, entity, options.getWhere(),
+                                  options.isSchemaOnly());
          return new QueryResultAdapter(result);
       }
       catch(OAuthException e) {
@@ -56,4 +59,157 @@ public class QuickbooksRuntime implements QuickbooksAPI {
          Thread.currentThread().setContextClassLoader(contextClassLoader);
       }
    }
+
+   @Override
+   public int getTotalCount(QuickbooksDataSourceOptions options) {
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+      try {
+         Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+         final String token = getAccessToken(options);
+         final QueryExecutor queryExecutor = new QueryExecutorService(options.getBaseUrl());
+         return queryExecutor.count(token, options.getCompanyId(), options.isProduction(),
+                                    options.getEntity(), options.getWhere());
+      }
+      catch(OAuthException e) {
+         throw new RuntimeException("OAuth authentication failed", e);
+      }
+      catch(FMSException e) {
+         throw new RuntimeException("SDK exception", e);
+      }
+      finally {
+         // switch back to original classloader
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+      }
+   }
+
+   @Override
+   public Map<String, QuickbooksQueryResult> loadEntities(QuickbooksDataSourceOptions options) {
+      final String companyId = options.getCompanyId();
+      final boolean production = options.isProduction();
+      final List<String> entities = options.getEntities();
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+      try {
+         Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+         final String token = getAccessToken(options);
+         final QueryExecutor queryExecutor = new QueryExecutorService(options.getBaseUrl());
+         final Map<String, QueryResult> results =
+            queryExecutor.execute(token, companyId, production, entities, options.isSchemaOnly());
+         final Map<String, QuickbooksQueryResult> adapted = new LinkedHashMap<>();
+         results.forEach((entity, result) -> adapted.put(entity, new QueryResultAdapter(result)));
+         return adapted;
+      }
+      catch(OAuthException e) {
+         throw new RuntimeException("OAuth authentication failed", e);
+      }
+      catch(FMSException e) {
+         throw new RuntimeException("SDK exception", e);
+      }
+      finally {
+         // switch back to original classloader
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+      }
+   }
+
+   @Override
+   public List<Object[]> loadColumns(QuickbooksDataSourceOptions options, List<String> columns) {
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+      try {
+         Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+         final String token = getAccessToken(options);
+         final RawQueryExecutor queryExecutor = new RawQueryExecutorService(options.getBaseUrl());
+         return queryExecutor.execute(token, options.getCompanyId(), options.isProduction(),
+                                      options.getEntity(), options.getFields(),
+                                      options.getWhere(), options.getOrderBy(),
+                                      options.getStartPosition(), options.getMaxResults(),
+                                      columns);
+      }
+      catch(OAuthException e) {
+         throw new RuntimeException("OAuth authentication failed", e);
+      }
+      catch(IOException e) {
+         throw new RuntimeException("Query request failed", e);
+      }
+      finally {
+         // switch back to original classloader
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+      }
+   }
+
+   @Override
+   public QuickbooksReportResult loadReport(QuickbooksDataSourceOptions options) {
+      final Map<String, String> parameters = new LinkedHashMap<>(options.getReportParameters());
+
+      if(options.getStartDate() != null) {
+         parameters.put("start_date", options.getStartDate());
+      }
+
+      if(options.getEndDate() != null) {
+         parameters.put("end_date", options.getEndDate());
+      }
+
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+      try {
+         Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+         final String token = getAccessToken(options);
+         final ReportExecutor reportExecutor = new ReportExecutorService(options.getBaseUrl());
+         return reportExecutor.execute(token, options.getCompanyId(), options.isProduction(),
+                                       options.getReport(), parameters);
+      }
+      catch(OAuthException e) {
+         throw new RuntimeException("OAuth authentication failed", e);
+      }
+      catch(IOException e) {
+         throw new RuntimeException("Report request failed", e);
+      }
+      finally {
+         // switch back to original classloader
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+      }
+   }
+
+   @Override
+   public List<QuickbooksWriteResult> writeEntities(QuickbooksDataSourceOptions options,
+                                                    List<Map<String, Object>> rows)
+   {
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+      try {
+         Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+         final String token = getAccessToken(options);
+         final WriteExecutor writeExecutor = new WriteExecutorService(options.getBaseUrl());
+         return new ArrayList<>(writeExecutor.execute(token, options.getCompanyId(),
+                                                      options.isProduction(), options.getEntity(),
+                                                      options.getWriteOperation(), rows));
+      }
+      catch(OAuthException e) {
+         throw new RuntimeException("OAuth authentication failed", e);
+      }
+      catch(FMSException e) {
+         throw new RuntimeException("SDK exception", e);
+      }
+      finally {
+         // switch back to original classloader
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+      }
+   }
+
+   private String getAccessToken(QuickbooksDataSourceOptions options) throws OAuthException {
+      final TokenStrategy tokenStrategy = TokenStrategyFactory.create(options.getAccessToken(),
+                                                                      options.getClientId(),
+                                                                      options.getClientSecret(),
+                                                                      options.getCompanyId(),
+                                                                      options.getAuthorizationCode(),
+                                                                      options.isProduction(),
+                                                                      options.getRedirectUrl(),
+                                                                      options.getDiscoveryUrl());
+      final long start = System.currentTimeMillis();
+      final String token = tokenStrategy.getAccessToken();
+      QuickbooksMetrics.getListener().tokenFetched(options.getCompanyId(),
+                                                   System.currentTimeMillis() - start);
+      return token;
+   }
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface RawQueryExecutor {
+   List<Object[]> execute(String token, String companyId, boolean production, String entity,
+                          List<String> fields, String where, String orderBy, int startPosition,
+                          int maxResults, List<String> columns) throws IOException;
+}
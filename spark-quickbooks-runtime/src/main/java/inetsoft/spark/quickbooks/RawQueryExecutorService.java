@@ -0,0 +1,574 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.net.*;
+import java.util.*;
+
+/**
+ * Executes queries against the query endpoint and decodes the JSON response with a streaming
+ * parser. Only the requested columns are kept, everything else in the response is skipped
+ * without creating the SDK entity objects.
+ */
+public class RawQueryExecutorService implements RawQueryExecutor {
+   /**
+    * @param baseUrl the base URL of the company API, or null to use the URL of the QuickBooks
+    *                environment
+    */
+   public RawQueryExecutorService(String baseUrl) {
+      this.baseUrl = baseUrl;
+   }
+
+   /**
+    * @param columns the flattened column names, e.g. metaData_lastUpdatedTime or line_0_amount.
+    *                Names are matched case insensitively against the JSON property names.
+    * @param fields        the selected fields of the entities, or an empty list to select every
+    *                      field
+    * @param orderBy       the fields the entities are sorted by, or null
+    * @param startPosition the 1 based position of the first entity
+    * @param maxResults    the number of entities to read, 0 to count the entities and read all
+    *                      of them from the start position
+    *
+    * @return the values of the columns of each entity in column order
+    */
+   @Override
+   public List<Object[]> execute(String token, String companyId, boolean production,
+                                 String entity, List<String> fields, String where,
+                                 String orderBy, int startPosition, int maxResults,
+                                 List<String> columns) throws IOException
+   {
+      final String whereClause = where == null || where.isEmpty() ? "" : " WHERE " + where;
+      final String orderByClause = QueryExecutorService.getOrderByClause(orderBy);
+      final String selectList = QueryExecutorService.getSelectList(fields);
+      final ColumnNode root = createColumnTree(columns);
+      final List<Object[]> rows = new ArrayList<>();
+      final int totalCount = maxResults > 0 ?
+         maxResults : count(token, companyId, production, entity, whereClause) - startPosition + 1;
+      final int endPosition = startPosition + totalCount;
+      final PageSizeController sizes = PageSizeController.get(companyId, entity);
+      int batchPosition = startPosition;
+
+      try {
+         // the pages are packed into batch requests like the SDK queries
+         while(batchPosition < endPosition) {
+            final List<String> queries = new ArrayList<>();
+            int position = batchPosition;
+
+            for(int counter = 0; counter < sizes.getBatchSize() && position < endPosition;
+                counter++)
+            {
+               final int pageRows = Math.min(sizes.getPageSize(), endPosition - position);
+               queries.add(String.format("SELECT %s FROM %s%s STARTPOSITION %d MAXRESULTS %d",
+                                         selectList, entity, whereClause + orderByClause,
+                                         position, pageRows));
+               position += pageRows;
+            }
+
+            final List<List<Object[]>> pages = new ArrayList<>(Collections.nCopies(
+               queries.size(), (List<Object[]>) null));
+            final int previousRows = rows.size();
+            final long start = System.currentTimeMillis();
+            final long bytes;
+
+            try {
+               bytes = batch(
+                  token, companyId, production, entity, queries,
+                  (index, parser) -> {
+                     final List<Object[]> page = new ArrayList<>();
+                     readEntities(parser, entity, root, columns.size(), page);
+                     pages.set(index, page);
+                  });
+            }
+            catch(IOException e) {
+               if(!sizes.failed(e)) {
+                  throw e;
+               }
+
+               LOG.debug("Retrying QuickBooks query of {} from position {}", entity, batchPosition);
+               continue;
+            }
+
+            for(List<Object[]> page : pages) {
+               if(page == null) {
+                  throw new IOException("Missing batch item in QuickBooks query of " + entity);
+               }
+
+               rows.addAll(page);
+            }
+
+            final long elapsed = System.currentTimeMillis() - start;
+            sizes.succeeded(elapsed);
+            QuickbooksMetrics.getListener().requestCompleted(
+               companyId, entity, QuickbooksMetrics.REQUEST_BATCH, elapsed, queries.size(),
+               rows.size() - previousRows, bytes);
+            final int requested = position - batchPosition;
+            batchPosition = position;
+
+            // the count can change while the pages are read
+            if(rows.size() - previousRows < requested) {
+               break;
+            }
+         }
+      }
+      finally {
+         sizes.save();
+      }
+
+      LOG.debug("QuickBooks query of {} decoded {} row(s)", entity, rows.size());
+      return rows;
+   }
+
+   private int count(String token, String companyId, boolean production, String entity,
+                     String whereClause) throws IOException
+   {
+      final int[] totalCount = { 0 };
+      final long start = System.currentTimeMillis();
+      final long bytes = query(
+         token, companyId, production, entity, "SELECT COUNT(*) FROM " + entity + whereClause,
+         parser -> {
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+               final String name = parser.getCurrentName();
+               parser.nextToken();
+
+               if("totalCount".equals(name)) {
+                  totalCount[0] = parser.getIntValue();
+               }
+               else {
+                  parser.skipChildren();
+               }
+            }
+         });
+      QuickbooksMetrics.getListener().requestCompleted(
+         companyId, entity, QuickbooksMetrics.REQUEST_COUNT, System.currentTimeMillis() - start,
+         1, 0, bytes);
+      LOG.debug("QuickBooks count returned {} result(s)", totalCount[0]);
+      return totalCount[0];
+   }
+
+   /**
+    * Execute a query and pass the parser positioned on the QueryResponse object to the handler
+    *
+    * @return the size of the response
+    */
+   private long query(String token, String companyId, boolean production, String entity,
+                      String query, ResponseHandler handler) throws IOException
+   {
+      final URL url = new URL(getCompanyUrl(companyId, production) + "/query?query=" +
+                                 URLEncoder.encode(query, "UTF-8"));
+      LOG.debug("Executing QuickBooks query: {}", query);
+      return request(token, companyId, entity, url, null, (name, parser) -> {
+         if("QueryResponse".equals(name)) {
+            handler.handle(parser);
+         }
+         else {
+            parser.skipChildren();
+         }
+      });
+   }
+
+   /**
+    * Execute the queries in one batch request and pass the parser positioned on the
+    * QueryResponse object of each batch item to the handler with the index of its query.
+    * The handler is called again for every item if a throttled batch is retried.
+    *
+    * @return the size of the response
+    */
+   private long batch(String token, String companyId, boolean production, String entity,
+                      List<String> queries, BatchItemHandler handler) throws IOException
+   {
+      final URL url = new URL(getCompanyUrl(companyId, production) + "/batch");
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+      try(JsonGenerator generator = JSON_FACTORY.createGenerator(body)) {
+         generator.writeStartObject();
+         generator.writeArrayFieldStart("BatchItemRequest");
+
+         for(int i = 0; i < queries.size(); i++) {
+            generator.writeStartObject();
+            generator.writeStringField("bId", String.valueOf(i));
+            generator.writeStringField("Query", queries.get(i));
+            generator.writeEndObject();
+         }
+
+         generator.writeEndArray();
+         generator.writeEndObject();
+      }
+
+      LOG.debug("Executing QuickBooks batch of {} queries: {}", queries.size(), queries);
+      return request(token, companyId, entity, url, body.toByteArray(), (name, parser) -> {
+         if(!"BatchItemResponse".equals(name) || parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+         }
+
+         while(parser.nextToken() == JsonToken.START_OBJECT) {
+            readBatchItem(parser, queries.size(), handler);
+         }
+      });
+   }
+
+   /**
+    * Read a BatchItemResponse object, the bId can follow the QueryResponse so the rows are
+    * passed to the handler once the whole item has been read
+    */
+   private void readBatchItem(JsonParser parser, int itemCount, BatchItemHandler handler)
+      throws IOException
+   {
+      final String[] bId = { null };
+      final TokenBuffer queryResponse = new TokenBuffer(parser);
+
+      readFields(parser, (name, itemParser) -> {
+         if("bId".equals(name)) {
+            bId[0] = itemParser.getText();
+         }
+         else if("QueryResponse".equals(name)) {
+            queryResponse.copyCurrentStructure(itemParser);
+         }
+         else {
+            itemParser.skipChildren();
+         }
+      });
+
+      final int index;
+
+      try {
+         index = Integer.parseInt(bId[0]);
+      }
+      catch(NumberFormatException e) {
+         throw new IOException("Unexpected batch item: " + bId[0]);
+      }
+
+      if(index < 0 || index >= itemCount) {
+         throw new IOException("Unexpected batch item: " + bId[0]);
+      }
+
+      try(JsonParser itemParser = queryResponse.asParser()) {
+         if(itemParser.nextToken() == JsonToken.START_OBJECT) {
+            handler.handle(index, itemParser);
+         }
+      }
+   }
+
+   /**
+    * Send a request, retrying it with a growing wait while QuickBooks throttles requests
+    *
+    * @param body the JSON body of a POST request, or null to send a GET request
+    *
+    * @return the size of the response
+    */
+   private long request(String token, String companyId, String entity, URL url, byte[] body,
+                        FieldHandler handler) throws IOException
+   {
+      for(int throttled = 0; ; throttled++) {
+         try {
+            return send(token, url, body, handler);
+         }
+         catch(ThrottledException e) {
+            if(throttled >= ReportExecutorService.MAX_THROTTLE_RETRIES) {
+               throw e;
+            }
+
+            ReportExecutorService.waitForThrottle(companyId, entity, throttled);
+         }
+      }
+   }
+
+   private long send(String token, URL url, byte[] body, FieldHandler handler)
+      throws IOException
+   {
+      final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+      connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+      connection.setRequestProperty("Authorization", "Bearer " + token);
+      connection.setRequestProperty("Accept", "application/json");
+
+      try {
+         if(body != null) {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+
+            try(OutputStream out = connection.getOutputStream()) {
+               out.write(body);
+            }
+         }
+
+         final int status = connection.getResponseCode();
+
+         if(status != HttpURLConnection.HTTP_OK) {
+            final String error = ReportExecutorService.readError(connection);
+
+            if(status == ReportExecutorService.HTTP_TOO_MANY_REQUESTS) {
+               throw new ThrottledException(error);
+            }
+
+            throw new StatusException(status, error);
+         }
+
+         final CountingInputStream in = new CountingInputStream(connection.getInputStream());
+
+         try(JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT) {
+               throw new IOException("Unexpected query response");
+            }
+
+            readFields(parser, handler);
+         }
+
+         return in.count;
+      }
+      finally {
+         connection.disconnect();
+      }
+   }
+
+   /**
+    * Pass the parser positioned on the value of each field of an object to the handler, a
+    * Fault field fails the request
+    */
+   private void readFields(JsonParser parser, FieldHandler handler) throws IOException {
+      while(parser.nextToken() == JsonToken.FIELD_NAME) {
+         final String name = parser.getCurrentName();
+         parser.nextToken();
+
+         if("Fault".equals(name)) {
+            final String fault = parser.readValueAsTree().toString();
+
+            if(PageSizeController.isThrottled(fault)) {
+               throw new ThrottledException(fault);
+            }
+
+            final int status = PageSizeController.getStatusCode(fault);
+
+            if(status > 0) {
+               throw new StatusException(status, fault);
+            }
+
+            throw new IOException("Query failed: " + fault);
+         }
+
+         handler.handle(name, parser);
+      }
+   }
+
+   private String getCompanyUrl(String companyId, boolean production) throws IOException {
+      return QueryExecutorService.getBaseUrl(baseUrl, production) + "/" +
+         URLEncoder.encode(companyId, "UTF-8");
+   }
+
+   /**
+    * Read the entity array of a QueryResponse object
+    */
+   private void readEntities(JsonParser parser, String entity, ColumnNode root, int columnCount,
+                             List<Object[]> rows) throws IOException
+   {
+      while(parser.nextToken() == JsonToken.FIELD_NAME) {
+         final String name = parser.getCurrentName();
+
+         if(parser.nextToken() == JsonToken.START_ARRAY && name.equalsIgnoreCase(entity)) {
+            while(parser.nextToken() == JsonToken.START_OBJECT) {
+               final Object[] values = new Object[columnCount];
+               readObject(parser, root, values);
+               rows.add(values);
+            }
+         }
+         else {
+            parser.skipChildren();
+         }
+      }
+   }
+
+   private void readObject(JsonParser parser, ColumnNode node, Object[] values)
+      throws IOException
+   {
+      while(parser.nextToken() == JsonToken.FIELD_NAME) {
+         final String name = parser.getCurrentName().toLowerCase(Locale.ROOT);
+         final ColumnNode child = node.children.get(name);
+         parser.nextToken();
+
+         if(child == null) {
+            parser.skipChildren();
+         }
+         else {
+            readValue(parser, child, values);
+         }
+      }
+   }
+
+   private void readValue(JsonParser parser, ColumnNode node, Object[] values)
+      throws IOException
+   {
+      final JsonToken token = parser.currentToken();
+
+      if(token == JsonToken.START_OBJECT) {
+         readObject(parser, node, values);
+      }
+      else if(token == JsonToken.START_ARRAY) {
+         // array elements are addressed by their index in the column name
+         int index = 0;
+
+         while(parser.nextToken() != JsonToken.END_ARRAY) {
+            final ColumnNode child = node.children.get(String.valueOf(index++));
+
+            if(child == null) {
+               parser.skipChildren();
+            }
+            else {
+               readValue(parser, child, values);
+            }
+         }
+      }
+      else if(node.column >= 0) {
+         values[node.column] = getScalarValue(parser, token);
+      }
+   }
+
+   private Object getScalarValue(JsonParser parser, JsonToken token) throws IOException {
+      switch(token) {
+      case VALUE_STRING:
+         return parser.getText();
+      case VALUE_NUMBER_INT:
+         return parser.getNumberValue();
+      case VALUE_NUMBER_FLOAT:
+         return parser.getDecimalValue();
+      case VALUE_TRUE:
+         return Boolean.TRUE;
+      case VALUE_FALSE:
+         return Boolean.FALSE;
+      default:
+         return null;
+      }
+   }
+
+   private ColumnNode createColumnTree(List<String> columns) {
+      final ColumnNode root = new ColumnNode();
+
+      for(int i = 0; i < columns.size(); i++) {
+         ColumnNode node = root;
+
+         for(String token : columns.get(i).split("_")) {
+            node = node.children.computeIfAbsent(token.toLowerCase(Locale.ROOT),
+                                                 key -> new ColumnNode());
+         }
+
+         node.column = i;
+      }
+
+      return root;
+   }
+
+   /**
+    * Node of the tree of column name tokens, the leaves hold the index of their column
+    */
+   private static final class ColumnNode {
+      private final Map<String, ColumnNode> children = new HashMap<>();
+      private int column = -1;
+   }
+
+   /**
+    * Counts the bytes of the response
+    */
+   private static final class CountingInputStream extends FilterInputStream {
+      CountingInputStream(InputStream in) {
+         super(in);
+      }
+
+      @Override
+      public int read() throws IOException {
+         final int b = super.read();
+
+         if(b >= 0) {
+            count++;
+         }
+
+         return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         final int n = super.read(b, off, len);
+
+         if(n > 0) {
+            count += n;
+         }
+
+         return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+         final long skipped = super.skip(n);
+         count += skipped;
+         return skipped;
+      }
+
+      private long count;
+   }
+
+   /**
+    * Thrown when QuickBooks throttles a request, the request is retried after a wait
+    */
+   private static final class ThrottledException extends IOException {
+      ThrottledException(String message) {
+         super("QuickBooks request throttled: " + message);
+      }
+   }
+
+   /**
+    * Thrown when a request fails with an HTTP error status
+    */
+   static final class StatusException extends IOException {
+      StatusException(int status, String message) {
+         super("Query request failed with status " + status + ": " + message);
+         this.status = status;
+      }
+
+      int getStatus() {
+         return status;
+      }
+
+      private final int status;
+   }
+
+   private interface ResponseHandler {
+      void handle(JsonParser parser) throws IOException;
+   }
+
+   private interface BatchItemHandler {
+      void handle(int index, JsonParser parser) throws IOException;
+   }
+
+   private interface FieldHandler {
+      void handle(String name, JsonParser parser) throws IOException;
+   }
+
+   static final int CONNECT_TIMEOUT_MILLIS = 30000;
+   // a batch slower than this is retried with smaller sizes
+   static final int READ_TIMEOUT_MILLIS = 120000;
+   // the mapping factory gives the parsers a codec to read the faults as trees
+   private static final JsonFactory JSON_FACTORY = new MappingJsonFactory();
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final String baseUrl;
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Executes report requests against the Reports API. The JSON response is read as a tree and
+ * the nested Rows/ColData sections are flattened into one row per data, header and summary row.
+ */
+public class ReportExecutorService implements ReportExecutor {
+   /**
+    * @param baseUrl the base URL of the company API, or null to use the URL of the QuickBooks
+    *                environment
+    */
+   public ReportExecutorService(String baseUrl) {
+      this.baseUrl = baseUrl;
+   }
+
+   @Override
+   public ReportResult execute(String token, String companyId, boolean production, String report,
+                               Map<String, String> parameters) throws IOException
+   {
+      final URL url = new URL(getReportUrl(companyId, production, report, parameters));
+
+      for(int throttled = 0; ; throttled++) {
+         LOG.debug("Executing QuickBooks report: {}", url);
+         final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+         connection.setConnectTimeout(RawQueryExecutorService.CONNECT_TIMEOUT_MILLIS);
+         connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+         connection.setRequestProperty("Authorization", "Bearer " + token);
+         connection.setRequestProperty("Accept", "application/json");
+
+         try {
+            final long start = System.currentTimeMillis();
+            final int status = connection.getResponseCode();
+
+            if(status == HTTP_TOO_MANY_REQUESTS && throttled < MAX_THROTTLE_RETRIES) {
+               waitForThrottle(companyId, report, throttled);
+               continue;
+            }
+
+            if(status != HttpURLConnection.HTTP_OK) {
+               throw new IOException("Report request failed with status " + status + ": " +
+                                        readError(connection));
+            }
+
+            try(InputStream in = connection.getInputStream()) {
+               final ReportResult result = parseReport(MAPPER.readTree(in), parameters);
+               QuickbooksMetrics.getListener().requestCompleted(
+                  companyId, report, QuickbooksMetrics.REQUEST_REPORT,
+                  System.currentTimeMillis() - start, 1, result.getRows().size(), -1);
+               return result;
+            }
+         }
+         finally {
+            connection.disconnect();
+         }
+      }
+   }
+
+   /**
+    * Wait before sending a throttled request again, doubling the wait on each attempt
+    */
+   static void waitForThrottle(String companyId, String entity, int attempt) throws IOException {
+      final long wait = THROTTLE_BACKOFF_MILLIS << attempt;
+      LOG.debug("QuickBooks request throttled, retrying in {}ms", wait);
+      QuickbooksMetrics.getListener().throttled(companyId, entity, wait);
+
+      try {
+         Thread.sleep(wait);
+      }
+      catch(InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for QuickBooks throttling");
+      }
+   }
+
+   private String getReportUrl(String companyId, boolean production, String report,
+                               Map<String, String> parameters) throws IOException
+   {
+      final StringBuilder url =
+         new StringBuilder(QueryExecutorService.getBaseUrl(baseUrl, production))
+         .append('/').append(URLEncoder.encode(companyId, "UTF-8"))
+         .append("/reports/").append(URLEncoder.encode(report, "UTF-8"));
+      char separator = '?';
+
+      for(Map.Entry<String, String> parameter : parameters.entrySet()) {
+         url.append(separator)
+            .append(URLEncoder.encode(parameter.getKey(), "UTF-8"))
+            .append('=')
+            .append(URLEncoder.encode(parameter.getValue(), "UTF-8"));
+         separator = '&';
+      }
+
+      return url.toString();
+   }
+
+   /**
+    * Read the error response of a failed request
+    */
+   static String readError(HttpURLConnection connection) throws IOException {
+      final InputStream errorStream = connection.getErrorStream();
+
+      if(errorStream == null) {
+         return connection.getResponseMessage();
+      }
+
+      try(BufferedReader reader =
+             new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8)))
+      {
+         final StringBuilder message = new StringBuilder();
+         String line;
+
+         while((line = reader.readLine()) != null) {
+            message.append(line);
+         }
+
+         return message.toString();
+      }
+   }
+
+   private ReportResult parseReport(JsonNode report, Map<String, String> parameters) {
+      final List<String> columnNames = new ArrayList<>(Arrays.asList(METADATA_COLUMNS));
+      final List<String> columnTypes = new ArrayList<>(Arrays.asList(METADATA_COLUMN_TYPES));
+
+      for(JsonNode column : report.path("Columns").path("Column")) {
+         String name = column.path("ColTitle").asText("");
+
+         for(JsonNode metaData : column.path("MetaData")) {
+            if("ColKey".equals(metaData.path("Name").asText())) {
+               name = metaData.path("Value").asText(name);
+            }
+         }
+
+         columnNames.add(getUniqueColumnName(name, columnNames));
+         columnTypes.add(column.path("ColType").asText("String"));
+      }
+
+      final String[] period = {
+         parameters.get("start_date"), parameters.get("end_date")
+      };
+      final List<String[]> rows = new ArrayList<>();
+      parseRows(report.path("Rows").path("Row"), null, null, 0, period, columnNames.size(), rows);
+      LOG.debug("QuickBooks report returned {} row(s)", rows.size());
+      return new ReportResult(columnNames, columnTypes, rows);
+   }
+
+   /**
+    * Recursively flatten report rows. Sections contribute a header row, their nested rows one
+    * level deeper and a summary row.
+    */
+   private void parseRows(JsonNode rowNodes, String group, String section, int depth,
+                          String[] period, int columnCount, List<String[]> rows)
+   {
+      for(JsonNode row : rowNodes) {
+         final String rowGroup = row.path("group").asText(group);
+
+         if(row.has("ColData")) {
+            rows.add(createRow("Data", rowGroup, section, depth, period, columnCount,
+                               row.get("ColData")));
+         }
+         else {
+            final JsonNode header = row.path("Header").path("ColData");
+            final JsonNode summary = row.path("Summary").path("ColData");
+            final String rowSection = header.size() > 0 ?
+               header.get(0).path("value").asText(section) : section;
+
+            if(header.size() > 0) {
+               rows.add(createRow("Header", rowGroup, rowSection, depth, period, columnCount,
+                                  header));
+            }
+
+            parseRows(row.path("Rows").path("Row"), rowGroup, rowSection, depth + 1, period,
+                      columnCount, rows);
+
+            if(summary.size() > 0) {
+               rows.add(createRow("Summary", rowGroup, rowSection, depth, period, columnCount,
+                                  summary));
+            }
+         }
+      }
+   }
+
+   private String[] createRow(String rowType, String group, String section, int depth,
+                              String[] period, int columnCount, JsonNode colData)
+   {
+      final String[] row = new String[columnCount];
+      row[0] = rowType;
+      row[1] = group;
+      row[2] = section;
+      row[3] = String.valueOf(depth);
+      row[4] = period[0];
+      row[5] = period[1];
+
+      for(int i = 0; i < colData.size() && i + METADATA_COLUMNS.length < columnCount; i++) {
+         final String value = colData.get(i).path("value").asText("");
+         row[i + METADATA_COLUMNS.length] = value.isEmpty() ? null : value;
+      }
+
+      return row;
+   }
+
+   private String getUniqueColumnName(String name, List<String> columnNames) {
+      String columnName = name.replaceAll("[^A-Za-z0-9_]+", "_");
+
+      if(columnName.isEmpty()) {
+         columnName = "col_" + columnNames.size();
+      }
+
+      final String baseName = columnName;
+
+      for(int i = 1; columnNames.contains(columnName); i++) {
+         columnName = baseName + "_" + i;
+      }
+
+      return columnName;
+   }
+
+   private static final String[] METADATA_COLUMNS = {
+      "rowType", "group", "section", "depth", "periodStart", "periodEnd"
+   };
+   private static final String[] METADATA_COLUMN_TYPES = {
+      "String", "String", "String", "Integer", "Date", "Date"
+   };
+   static final int HTTP_TOO_MANY_REQUESTS = 429;
+   static final int MAX_THROTTLE_RETRIES = 5;
+   private static final long THROTTLE_BACKOFF_MILLIS = 1000L;
+   // reports of long periods are generated in one request and take longer than a query batch
+   private static final int READ_TIMEOUT_MILLIS = 300000;
+   private static final ObjectMapper MAPPER = new ObjectMapper();
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final String baseUrl;
+}
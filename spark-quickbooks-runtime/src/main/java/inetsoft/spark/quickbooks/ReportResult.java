@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import java.util.List;
+
+/**
+ * The columns and flattened rows of a report response
+ */
+public class ReportResult implements QuickbooksAPI.QuickbooksReportResult {
+   public ReportResult(List<String> columnNames, List<String> columnTypes, List<String[]> rows) {
+      this.columnNames = columnNames;
+      this.columnTypes = columnTypes;
+      this.rows = rows;
+   }
+
+   @Override
+   public List<String> getColumnNames() {
+      return columnNames;
+   }
+
+   @Override
+   public List<String> getColumnTypes() {
+      return columnTypes;
+   }
+
+   @Override
+   public List<String[]> getRows() {
+      return rows;
+   }
+
+   private final List<String> columnNames;
+   private final List<String> columnTypes;
+   private final List<String[]> rows;
+}
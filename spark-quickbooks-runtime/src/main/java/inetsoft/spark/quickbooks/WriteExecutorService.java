@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import com.fasterxml.jackson.databind.*;
+import com.intuit.ipp.core.*;
+import com.intuit.ipp.data.Error;
+import com.intuit.ipp.data.IntuitEntity;
+import com.intuit.ipp.data.OperationEnum;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.security.OAuth2Authorizer;
+import com.intuit.ipp.services.BatchOperation;
+import com.intuit.ipp.services.DataService;
+import com.intuit.ipp.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Writes entities with batch operations. Rows are converted to entities of the target entity
+ * class and packed 30 to a batch, throttled batches are retried with an exponential backoff.
+ */
+public class WriteExecutorService implements WriteExecutor {
+   /**
+    * @param baseUrl the base URL of the company API, or null to use the URL of the QuickBooks
+    *                environment
+    */
+   public WriteExecutorService(String baseUrl) {
+      this.baseUrl = baseUrl;
+   }
+
+   @Override
+   public List<WriteResult> execute(String token, String companyId, boolean production,
+                                    String entity, String operation,
+                                    List<Map<String, Object>> rows) throws FMSException
+   {
+      Config.setProperty(Config.BASE_URL_QBO,
+                         QueryExecutorService.getBaseUrl(baseUrl, production));
+      final OAuth2Authorizer oauth = new OAuth2Authorizer(token);
+      final Context context = new Context(oauth, ServiceType.QBO, companyId);
+      final DataService service = new DataService(context);
+      final Class<?> entityClass = getEntityClass(entity);
+      final OperationEnum operationEnum = OperationEnum.valueOf(operation.toUpperCase());
+      final WriteResult[] results = new WriteResult[rows.size()];
+
+      for(int start = 0; start < rows.size(); start += QueryExecutorService.BATCH_LIMIT) {
+         final int end = Math.min(start + QueryExecutorService.BATCH_LIMIT, rows.size());
+         final BatchOperation batchOperation = new BatchOperation();
+
+         for(int i = start; i < end; i++) {
+            try {
+               final IEntity rowEntity = (IEntity) MAPPER.convertValue(rows.get(i), entityClass);
+               batchOperation.addEntity(rowEntity, operationEnum, String.valueOf(i));
+            }
+            catch(IllegalArgumentException e) {
+               results[i] = WriteResult.failure("Invalid " + entity + ": " + e.getMessage());
+            }
+         }
+
+         if(batchOperation.getBIds().isEmpty()) {
+            continue;
+         }
+
+         LOG.debug("Executing QuickBooks {} batch from row: {}", operation, start);
+         executeBatch(service, companyId, entity, batchOperation);
+
+         for(String bId : batchOperation.getBIds()) {
+            results[Integer.parseInt(bId)] = getResult(batchOperation, bId);
+         }
+      }
+
+      return Arrays.asList(results);
+   }
+
+   private WriteResult getResult(BatchOperation batchOperation, String bId) {
+      if(batchOperation.isFault(bId)) {
+         return WriteResult.failure(getErrorMessage(batchOperation.getFault(bId).getError()));
+      }
+
+      final IEntity result = batchOperation.getEntity(bId);
+      return WriteResult.success(result instanceof IntuitEntity ?
+                                    ((IntuitEntity) result).getId() : null);
+   }
+
+   /**
+    * Execute a batch operation, waiting and retrying when QuickBooks throttles the request
+    */
+   private void executeBatch(DataService service, String companyId, String entity,
+                             BatchOperation batchOperation) throws FMSException
+   {
+      for(int attempt = 0; ; attempt++) {
+         try {
+            final long start = System.currentTimeMillis();
+            service.executeBatch(batchOperation);
+            final int operations = batchOperation.getBIds().size();
+            QuickbooksMetrics.getListener().requestCompleted(
+               companyId, entity, QuickbooksMetrics.REQUEST_WRITE,
+               System.currentTimeMillis() - start, operations, operations, -1);
+            return;
+         }
+         catch(FMSException e) {
+            if(!PageSizeController.isThrottled(e) || attempt >= MAX_THROTTLE_RETRIES) {
+               throw e;
+            }
+
+            final long wait = THROTTLE_BACKOFF_MILLIS << attempt;
+            LOG.debug("QuickBooks request throttled, retrying in {}ms", wait);
+            QuickbooksMetrics.getListener().throttled(companyId, entity, wait);
+
+            try {
+               Thread.sleep(wait);
+            }
+            catch(InterruptedException ie) {
+               Thread.currentThread().interrupt();
+               throw e;
+            }
+         }
+      }
+   }
+
+   private String getErrorMessage(List<Error> errors) {
+      return errors.stream()
+                   .map(error -> error.getMessage() + ": " + error.getDetail())
+                   .collect(Collectors.joining("; "));
+   }
+
+   private Class<?> getEntityClass(String entity) throws FMSException {
+      final String className = ENTITY_PACKAGE + Character.toUpperCase(entity.charAt(0)) +
+         entity.substring(1);
+
+      try {
+         return Class.forName(className);
+      }
+      catch(ClassNotFoundException e) {
+         throw new FMSException("Unknown QuickBooks entity: " + entity, e);
+      }
+   }
+
+   private static final String ENTITY_PACKAGE = "com.intuit.ipp.data.";
+   private static final int MAX_THROTTLE_RETRIES = 5;
+   private static final long THROTTLE_BACKOFF_MILLIS = 1000L;
+   private static final ObjectMapper MAPPER = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+      .configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final String baseUrl;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+/**
+ * The outcome of writing a single row
+ */
+public class WriteResult implements QuickbooksAPI.QuickbooksWriteResult {
+   private WriteResult(String id, String error) {
+      this.id = id;
+      this.error = error;
+   }
+
+   public static WriteResult success(String id) {
+      return new WriteResult(id, null);
+   }
+
+   public static WriteResult failure(String error) {
+      return new WriteResult(null, error);
+   }
+
+   @Override
+   public String getId() {
+      return id;
+   }
+
+   @Override
+   public String getError() {
+      return error;
+   }
+
+   private final String id;
+   private final String error;
+}
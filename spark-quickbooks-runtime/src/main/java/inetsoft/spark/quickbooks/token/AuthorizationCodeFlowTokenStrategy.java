@@ -9,6 +9,7 @@ import inetsoft.spark.quickbooks.QuickbooksConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 
 /**
@@ -21,7 +22,8 @@ public class AuthorizationCodeFlowTokenStrategy implements TokenStrategy {
                                              String companyId,
                                              String authorizationCode,
                                              boolean production,
-                                             String redirectUrl)
+                                             String redirectUrl,
+                                             String discoveryUrl)
    {
       this.clientId = clientId;
       this.companyId = companyId;
@@ -29,15 +31,21 @@ public class AuthorizationCodeFlowTokenStrategy implements TokenStrategy {
       this.clientSecret = clientSecret;
       this.production = production;
       this.redirectUrl = redirectUrl;
+      this.discoveryUrl = discoveryUrl;
    }
 
    @Override
    public String getAccessToken() throws OAuthException {
+      final QuickbooksConfig config = QuickbooksConfig.readConfig(clientId, companyId);
+
+      if(discoveryUrl != null) {
+         return connect(config, new TokenEndpointClient(discoveryUrl, clientId, clientSecret));
+      }
+
       OAuth2Config oauth2Config = new OAuth2Config.OAuth2ConfigBuilder(clientId, clientSecret)
          .callDiscoveryAPI(production ? Environment.PRODUCTION : Environment.SANDBOX)
          .buildConfig();
       client = new OAuth2PlatformClient(oauth2Config);
-      final QuickbooksConfig config = QuickbooksConfig.readConfig(clientId, companyId);
       return connect(config);
    }
 
@@ -74,6 +82,36 @@ public class AuthorizationCodeFlowTokenStrategy implements TokenStrategy {
       return config.getAccessToken();
    }
 
+   /**
+    * Handle the OAuth connection with the token endpoint of the configured discovery document
+    */
+   private String connect(QuickbooksConfig config, TokenEndpointClient endpoint) {
+      TokenEndpointClient.Tokens tokens = null;
+
+      try {
+         if(config.getAccessToken() == null) {
+            LOG.debug("Fetching OAuth tokens from {}", discoveryUrl);
+            tokens = endpoint.retrieveTokens(authorizationCode, redirectUrl);
+         }
+         else if(config.getExpiration() > -1 &&
+            config.getExpiration() < System.currentTimeMillis())
+         {
+            LOG.debug("Refreshing OAuth tokens from {}", discoveryUrl);
+            tokens = endpoint.refreshTokens(config.getRefreshToken());
+         }
+      }
+      catch(IOException e) {
+         throw new RuntimeException("Failed to get OAuth tokens from " + discoveryUrl, e);
+      }
+
+      if(tokens != null) {
+         config = config.updateCredentials(tokens.expiresIn, tokens.accessToken,
+                                           tokens.refreshToken, clientId, companyId);
+      }
+
+      return config.getAccessToken();
+   }
+
    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
    private final String clientId;
    private final String companyId;
@@ -81,5 +119,6 @@ public class AuthorizationCodeFlowTokenStrategy implements TokenStrategy {
    private final String clientSecret;
    private final boolean production;
    private final String redirectUrl;
+   private final String discoveryUrl;
    private OAuth2PlatformClient client;
 }
@@ -31,13 +31,19 @@ public class AuthorizationCodeFlowTokenStrategyBuilder {
       return this;
    }
 
+   public AuthorizationCodeFlowTokenStrategyBuilder setDiscoveryUrl(String discoveryUrl) {
+      this.discoveryUrl = discoveryUrl;
+      return this;
+   }
+
    public AuthorizationCodeFlowTokenStrategy build() {
       return new AuthorizationCodeFlowTokenStrategy(clientId,
                                                     clientSecret,
                                                     companyId,
                                                     authorizationCode,
                                                     production,
-                                                    redirectUrl);
+                                                    redirectUrl,
+                                                    discoveryUrl);
    }
 
    private String clientId;
@@ -46,4 +52,5 @@ public class AuthorizationCodeFlowTokenStrategyBuilder {
    private String authorizationCode;
    private boolean production;
    private String redirectUrl;
+   private String discoveryUrl;
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package inetsoft.spark.quickbooks.token;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Exchanges and refreshes OAuth tokens with the token endpoint listed by a configured OpenID
+ * discovery document, used instead of the SDK client when the OAuth server isn't Intuit's, e.g.
+ * a local test server.
+ */
+class TokenEndpointClient {
+   TokenEndpointClient(String discoveryUrl, String clientId, String clientSecret) {
+      this.discoveryUrl = discoveryUrl;
+      this.clientId = clientId;
+      this.clientSecret = clientSecret;
+   }
+
+   Tokens retrieveTokens(String authorizationCode, String redirectUrl) throws IOException {
+      return requestTokens("grant_type=authorization_code&code=" + encode(authorizationCode) +
+                              "&redirect_uri=" + encode(redirectUrl));
+   }
+
+   Tokens refreshTokens(String refreshToken) throws IOException {
+      return requestTokens("grant_type=refresh_token&refresh_token=" + encode(refreshToken));
+   }
+
+   private Tokens requestTokens(String form) throws IOException {
+      final JsonNode response = request(getTokenEndpoint(), form);
+      return new Tokens(response.path("expires_in").asLong(),
+                        response.path("access_token").asText(null),
+                        response.path("refresh_token").asText(null));
+   }
+
+   private String getTokenEndpoint() throws IOException {
+      final String endpoint = request(discoveryUrl, null).path("token_endpoint").asText(null);
+
+      if(endpoint == null) {
+         throw new IOException("No token endpoint in discovery document " + discoveryUrl);
+      }
+
+      return endpoint;
+   }
+
+   /**
+    * Send a GET request, or a POST request of a form to the token endpoint
+    */
+   private JsonNode request(String url, String form) throws IOException {
+      final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+      try {
+         connection.setRequestProperty("Accept", "application/json");
+
+         if(form != null) {
+            final String credentials = Base64.getEncoder().encodeToString(
+               (clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Authorization", "Basic " + credentials);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+
+            try(OutputStream output = connection.getOutputStream()) {
+               output.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+         }
+
+         final int status = connection.getResponseCode();
+
+         if(status != HttpURLConnection.HTTP_OK) {
+            throw new IOException("OAuth request to " + url + " failed with status " + status);
+         }
+
+         try(InputStream input = connection.getInputStream()) {
+            return MAPPER.readTree(input);
+         }
+      }
+      finally {
+         connection.disconnect();
+      }
+   }
+
+   private static String encode(String value) throws UnsupportedEncodingException {
+      return URLEncoder.encode(value == null ? "" : value, "UTF-8");
+   }
+
+   static final class Tokens {
+      Tokens(long expiresIn, String accessToken, String refreshToken) {
+         this.expiresIn = expiresIn;
+         this.accessToken = accessToken;
+         this.refreshToken = refreshToken;
+      }
+
+      final long expiresIn;
+      final String accessToken;
+      final String refreshToken;
+   }
+
+   private static final ObjectMapper MAPPER = new ObjectMapper();
+   private final String discoveryUrl;
+   private final String clientId;
+   private final String clientSecret;
+}
@@ -10,7 +10,8 @@ public class TokenStrategyFactory {
                                       String companyId,
                                       String authorizationCode,
                                       boolean production,
-                                      String redirectUrl)
+                                      String redirectUrl,
+                                      String discoveryUrl)
    {
       if(accessToken != null) {
          return new ExternalOAuthTokenStrategy(accessToken);
@@ -22,6 +23,7 @@ public class TokenStrategyFactory {
                                                             .setAuthorizationCode(authorizationCode)
                                                             .setProduction(production)
                                                             .setRedirectUrl(redirectUrl)
+                                                            .setDiscoveryUrl(discoveryUrl)
                                                             .build();
    }
 }
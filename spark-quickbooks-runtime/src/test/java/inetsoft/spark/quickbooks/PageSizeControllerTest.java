@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import com.intuit.ipp.data.Error;
+import com.intuit.ipp.exception.FMSException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class PageSizeControllerTest {
+   @BeforeClass
+   public static void createLibDir() {
+      // the sizes are saved in the lib dir, which the classloader creates outside of the tests
+      new File(QuickbooksUtil.getQbLibDir()).mkdirs();
+   }
+
+   @Test
+   public void startsAtApiLimits() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      assertEquals(1000, sizes.getPageSize());
+      assertEquals(QueryExecutorService.BATCH_LIMIT, sizes.getBatchSize());
+   }
+
+   @Test
+   public void slowBatchesShrinkBatchThenPages() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      sizes.succeeded(SLOW_MILLIS);
+      assertEquals(15, sizes.getBatchSize());
+      assertEquals(1000, sizes.getPageSize());
+
+      while(sizes.getBatchSize() > 1) {
+         sizes.succeeded(SLOW_MILLIS);
+      }
+
+      sizes.succeeded(SLOW_MILLIS);
+      assertEquals(1, sizes.getBatchSize());
+      assertEquals(500, sizes.getPageSize());
+   }
+
+   @Test
+   public void fastBatchesGrowPagesThenBatch() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      while(sizes.getBatchSize() > 1 || sizes.getPageSize() > 250) {
+         sizes.succeeded(SLOW_MILLIS);
+      }
+
+      sizes.succeeded(FAST_MILLIS);
+      assertEquals(500, sizes.getPageSize());
+      assertEquals(1, sizes.getBatchSize());
+
+      sizes.succeeded(FAST_MILLIS);
+      sizes.succeeded(FAST_MILLIS);
+      assertEquals(1000, sizes.getPageSize());
+      assertEquals(2, sizes.getBatchSize());
+   }
+
+   @Test
+   public void batchesOnTargetKeepTheirSize() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      sizes.succeeded(10000L);
+      assertEquals(1000, sizes.getPageSize());
+      assertEquals(QueryExecutorService.BATCH_LIMIT, sizes.getBatchSize());
+   }
+
+   @Test
+   public void timeoutsShrinkAndRetry() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      assertTrue(sizes.failed(new FMSException("Read failed", new SocketTimeoutException())));
+      assertEquals(15, sizes.getBatchSize());
+      final Error error = new Error();
+      error.setCode("3100");
+      error.setDetail("message=Service Unavailable; errorCode=003100; statusCode=503");
+      assertTrue(sizes.failed(new FMSException(Collections.singletonList(error))));
+      assertEquals(7, sizes.getBatchSize());
+   }
+
+   @Test
+   public void rawServerErrorsShrinkAndRetry() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      assertTrue(sizes.failed(new SocketTimeoutException("Read timed out")));
+      assertEquals(15, sizes.getBatchSize());
+      assertTrue(sizes.failed(new RawQueryExecutorService.StatusException(504, "Gateway")));
+      assertEquals(7, sizes.getBatchSize());
+      assertFalse(sizes.failed(new RawQueryExecutorService.StatusException(400, "Bad query")));
+      assertFalse(sizes.failed(new IOException("Query failed")));
+      assertEquals(7, sizes.getBatchSize());
+   }
+
+   @Test
+   public void readsStatusCodeOfErrorDetail() {
+      assertEquals(502, PageSizeController.getStatusCode(
+         "message=Bad Gateway; errorCode=003100; statusCode=502"));
+      assertEquals(-1, PageSizeController.getStatusCode("Invalid Id 500"));
+      assertEquals(-1, PageSizeController.getStatusCode(null));
+   }
+
+   @Test
+   public void otherErrorsAreNotRetried() {
+      final PageSizeController sizes = PageSizeController.get(newCompanyId(), "Invoice");
+
+      assertFalse(sizes.failed(new FMSException("Invalid query")));
+      assertFalse(sizes.failed(new FMSException("statusCode=429")));
+      // numbers in the message are not status codes
+      assertFalse(sizes.failed(new FMSException("Invalid Id 500 of Invoice")));
+      assertFalse(sizes.failed(new FMSException("statusCode=400")));
+      assertEquals(QueryExecutorService.BATCH_LIMIT, sizes.getBatchSize());
+   }
+
+   @Test
+   public void detectsThrottling() {
+      final Error error = new Error();
+      error.setCode("3001");
+
+      assertTrue(PageSizeController.isThrottled(
+         new FMSException(Collections.singletonList(error))));
+      assertTrue(PageSizeController.isThrottled(new FMSException("message=ThrottleExceeded")));
+      assertFalse(PageSizeController.isThrottled(new FMSException("Invalid query")));
+      assertTrue(PageSizeController.isThrottled("{\"Error\":[{\"code\":\"3001\"," +
+                                                   "\"Message\":\"ThrottleExceeded\"}]}"));
+      assertFalse(PageSizeController.isThrottled((String) null));
+   }
+
+   @Test
+   public void savesTunedSizes() {
+      final String companyId = newCompanyId();
+      final PageSizeController sizes = PageSizeController.get(companyId, "Invoice");
+
+      while(sizes.getBatchSize() > 1 || sizes.getPageSize() > 250) {
+         sizes.succeeded(SLOW_MILLIS);
+      }
+
+      sizes.save();
+      final PageSizeController saved = PageSizeController.get(companyId, "Invoice");
+      assertEquals(250, saved.getPageSize());
+      assertEquals(1, saved.getBatchSize());
+
+      // other entities keep their own sizes
+      final PageSizeController other = PageSizeController.get(companyId, "Customer");
+      assertEquals(1000, other.getPageSize());
+      assertEquals(QueryExecutorService.BATCH_LIMIT, other.getBatchSize());
+   }
+
+   private static String newCompanyId() {
+      return "test-" + UUID.randomUUID();
+   }
+
+   private static final long SLOW_MILLIS = 20000L;
+   private static final long FAST_MILLIS = 1000L;
+}
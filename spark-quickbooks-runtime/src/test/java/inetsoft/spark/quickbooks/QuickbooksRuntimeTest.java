@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks;
+
+import com.intuit.ipp.data.Invoice;
+import inetsoft.spark.quickbooks.QuickbooksAPI.QuickbooksQueryResult;
+import inetsoft.spark.quickbooks.mock.*;
+import org.junit.*;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the queries of the runtime against the mock QuickBooks server
+ */
+public class QuickbooksRuntimeTest {
+   @BeforeClass
+   public static void startServer() throws Exception {
+      new File(QuickbooksUtil.getQbLibDir()).mkdirs();
+      server = new MockQuickbooksServerBuilder()
+         .setEntityCount(ENTITY_COUNT)
+         .setEntityBytes(200)
+         .start();
+   }
+
+   @AfterClass
+   public static void stopServer() {
+      server.close();
+   }
+
+   @Test
+   public void countsEntities() {
+      assertEquals(ENTITY_COUNT, runtime.getTotalCount(options(server)));
+   }
+
+   @Test
+   public void loadsRangeInOneBatch() {
+      final long requests = server.getRequestCount();
+      final QuickbooksQueryResult result =
+         runtime.loadData(options(server).withOption("maxResults", "2500"));
+      final List<Object> entities = result.getEntities();
+
+      assertEquals(2500, entities.size());
+      assertEquals("1", ((Invoice) entities.get(0)).getId());
+      assertEquals("2500", ((Invoice) entities.get(2499)).getId());
+      // three pages of 1000 fit in one batch request
+      assertEquals(1, server.getRequestCount() - requests);
+   }
+
+   @Test
+   public void loadsEveryEntity() {
+      final QuickbooksQueryResult result =
+         runtime.loadData(options(server).withOption("startPosition", "4001"));
+
+      assertEquals(ENTITY_COUNT - 4000, result.getEntities().size());
+      assertEquals("4001", ((Invoice) result.getEntities().get(0)).getId());
+   }
+
+   @Test
+   public void loadsColumnsFromJson() {
+      final long requests = server.getRequestCount();
+      final List<Object[]> rows = runtime.loadColumns(
+         options(server).withOption("startPosition", "11").withOption("maxResults", "1500"),
+         Arrays.asList("id", "metaData_lastUpdatedTime", "missing"));
+
+      assertEquals(1500, rows.size());
+      assertArrayEquals(new Object[]{ "11", EntityGenerator.formatTime(11), null }, rows.get(0));
+      assertEquals("1510", rows.get(1499)[0]);
+      assertEquals(1, server.getRequestCount() - requests);
+   }
+
+   @Test
+   public void loadsColumnsToEndOfEntity() {
+      final List<Object[]> rows = runtime.loadColumns(
+         options(server).withOption("startPosition", "4501"), Collections.singletonList("id"));
+
+      assertEquals(ENTITY_COUNT - 4500, rows.size());
+      assertEquals(String.valueOf(ENTITY_COUNT), rows.get(rows.size() - 1)[0]);
+   }
+
+   @Test
+   public void retriesThrottledRequests() throws Exception {
+      try(MockQuickbooksServer throttled = new MockQuickbooksServerBuilder()
+         .setEntityCount(100)
+         .setEntityBytes(200)
+         .setRequestsPerSecond(1)
+         .start())
+      {
+         final QuickbooksDataSourceOptions options =
+            options(throttled).withOption("maxResults", "100");
+
+         for(int i = 0; i < 3; i++) {
+            assertEquals(100, runtime.loadColumns(options, Collections.singletonList("id")).size());
+            assertEquals(100, runtime.loadData(options).getEntities().size());
+            assertEquals(100, runtime.loadEntities(options.withOption("entities", "Invoice"))
+                                     .get("Invoice").getEntities().size());
+         }
+
+         assertTrue(throttled.getThrottledCount() > 0);
+      }
+   }
+
+   private static QuickbooksDataSourceOptions options(MockQuickbooksServer server) {
+      final Map<String, String> options = new HashMap<>();
+      options.put("baseUrl", server.getBaseUrl());
+      options.put("discoveryUrl", server.getDiscoveryUrl());
+      // each test tunes the page sizes of its own company
+      options.put("companyId", "test-" + UUID.randomUUID());
+      options.put("accessToken", "mock-token");
+      options.put("entity", "Invoice");
+      return QuickbooksDataSourceOptions.from(options);
+   }
+
+   private static final int ENTITY_COUNT = 5000;
+   private static MockQuickbooksServer server;
+   private final QuickbooksRuntime runtime = new QuickbooksRuntime();
+}
@@ -101,6 +101,19 @@ public class SparkSchema implements Serializable {
       }
    }
 
+   /**
+    * @return a copy whose struct type can be replaced without changing this schema
+    */
+   public SparkSchema copy() {
+      final SparkSchema copy = new SparkSchema();
+      copy.structType = structType;
+      copy.methodNames.putAll(methodNames);
+      copy.schemas.putAll(schemas);
+      copy.flattened = flattened;
+      copy.arraySize = arraySize;
+      return copy;
+   }
+
    public void setMethodName(String fieldName, String methodName) {
       methodNames.put(fieldName, methodName);
    }
@@ -85,7 +85,7 @@ public class SparkSchemaGenerator implements Serializable {
                                          SparkSchema schema)
    {
       final StructField field;
-      final DataType type = getDataTypeFromClass(propertyType);
+      final DataType type = getDataTypeFromClass(propertyName, propertyType);
 
       // primitive or primitive wrapper
       if(!type.sameType(DataTypes.BinaryType)) {
@@ -152,9 +152,10 @@ public class SparkSchemaGenerator implements Serializable {
 
    /**
     * From https://spark.apache.org/docs/latest/sql-reference.html, translate simple class name
-    * to Spark DataType
+    * to Spark DataType. The SDK uses Date for both xsd:date and xsd:dateTime properties, the date
+    * properties are the ones named *Date, e.g. TxnDate and DueDate.
     */
-   private static DataType getDataTypeFromClass(Class clazz) {
+   private static DataType getDataTypeFromClass(String propertyName, Class clazz) {
       final String typeName = clazz.getSimpleName();
 
       switch(typeName) {
@@ -177,16 +178,16 @@ public class SparkSchemaGenerator implements Serializable {
          case "Double":
             return DataTypes.DoubleType;
          case "BigDecimal":
-            return DataTypes.createDecimalType();
+            return DECIMAL_TYPE;
          case "String":
             return DataTypes.StringType;
          case "boolean":
          case "Boolean":
             return DataTypes.BooleanType;
          case "Date":
-            return DataTypes.LongType;
+            return propertyName.endsWith("Date") ? DataTypes.DateType : DataTypes.TimestampType;
          case "Timestamp":
-            return DataTypes.LongType;
+            return DataTypes.TimestampType;
          case "Object":
             return DataTypes.BinaryType;
          default:
@@ -199,6 +200,11 @@ public class SparkSchemaGenerator implements Serializable {
       }
    }
 
+   /**
+    * The type of amounts, quantities and rates. The precision fits in a long, so Spark keeps the
+    * values unscaled in longs instead of BigDecimals.
+    */
+   public static final DecimalType DECIMAL_TYPE = DataTypes.createDecimalType(18, 6);
    private static final Map<Class, List<PropertyDescriptor>> descriptorCache = new HashMap<>();
    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 }
\ No newline at end of file
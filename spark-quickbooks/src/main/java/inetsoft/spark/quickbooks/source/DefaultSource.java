@@ -39,8 +39,10 @@ public class DefaultSource implements TableProvider, DataSourceRegister {
 
    @Override
    public Table getTable(StructType structType, Transform[] transforms, Map<String, String> map) {
-      final QuickbooksDataSourceOptions options = QuickbooksDataSourceOptions.from(map);
+      final QuickbooksDataSourceOptions options =
+         QuickbooksQuery.apply(QuickbooksDataSourceOptions.from(map));
       final QuickbooksStreamReader reader = new QuickbooksStreamReader(options);
-      return new QuickbooksTable(options, reader);
+      return new QuickbooksTable(options, reader,
+                                 QuickbooksMultiEntityReader.getPrefetchedEntity(map));
    }
 }
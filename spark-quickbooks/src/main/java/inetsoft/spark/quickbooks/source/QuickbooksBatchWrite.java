@@ -0,0 +1,264 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksAPI;
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import org.apache.spark.sql.*;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.util.ArrayData;
+import org.apache.spark.sql.connector.write.*;
+import org.apache.spark.sql.types.*;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes rows to QuickBooks with batch create, update or delete operations. Each partition
+ * buffers its rows and writes them in batches of 30 operations, the rows that QuickBooks
+ * rejects are collected on the driver and can be retrieved with {@link #getFailures}.
+ */
+public class QuickbooksBatchWrite implements BatchWrite, Serializable {
+   public QuickbooksBatchWrite(QuickbooksDataSourceOptions options, StructType schema,
+                               String queryId)
+   {
+      this.options = options;
+      this.schema = schema;
+      this.writeId = options.getWriteId() != null ? options.getWriteId() : queryId;
+   }
+
+   @Override
+   public DataWriterFactory createBatchWriterFactory(PhysicalWriteInfo info) {
+      return (partitionId, taskId) -> new QuickbooksDataWriter(options, schema, partitionId);
+   }
+
+   @Override
+   public void commit(WriterCommitMessage[] messages) {
+      final List<Row> failures = new ArrayList<>();
+      int written = 0;
+
+      for(WriterCommitMessage message : messages) {
+         final QuickbooksCommitMessage commitMessage = (QuickbooksCommitMessage) message;
+         written += commitMessage.written;
+         failures.addAll(commitMessage.failures);
+      }
+
+      LOG.info("QuickBooks {} of {} wrote {} row(s), {} failed",
+               options.getWriteOperation(), options.getEntity(), written, failures.size());
+      writeFailures.put(writeId, failures);
+   }
+
+   @Override
+   public void abort(WriterCommitMessage[] messages) {
+      LOG.warn("QuickBooks {} of {} aborted, rows that were already written are not reverted",
+               options.getWriteOperation(), options.getEntity());
+   }
+
+   /**
+    * Get the rows that failed in a write. The writeId option identifies the write, if it is not
+    * set the ID of the write query is used.
+    *
+    * @return a data frame with the partition, row index in the partition, row Id and error
+    * message of every failed row, or null if no write with the ID has completed
+    */
+   public static Dataset<Row> getFailures(SparkSession session, String writeId) {
+      final List<Row> failures = writeFailures.get(writeId);
+      return failures == null ? null : session.createDataFrame(failures, FAILURE_SCHEMA);
+   }
+
+   /**
+    * Remove the failures of a write that are no longer needed
+    */
+   public static void clearFailures(String writeId) {
+      writeFailures.remove(writeId);
+   }
+
+   private static class QuickbooksDataWriter implements DataWriter<InternalRow> {
+      QuickbooksDataWriter(QuickbooksDataSourceOptions options, StructType schema,
+                           int partitionId)
+      {
+         this.reader = new QuickbooksStreamReader(options);
+         this.fields = schema.fields();
+         this.partitionId = partitionId;
+      }
+
+      @Override
+      public void write(InternalRow record) {
+         buffer.add(toEntityProperties(record, fields));
+
+         if(buffer.size() >= BUFFER_SIZE) {
+            flush();
+         }
+      }
+
+      @Override
+      public WriterCommitMessage commit() {
+         flush();
+         return new QuickbooksCommitMessage(written, failures);
+      }
+
+      @Override
+      public void abort() {
+         buffer.clear();
+      }
+
+      @Override
+      public void close() {
+      }
+
+      private void flush() {
+         if(buffer.isEmpty()) {
+            return;
+         }
+
+         final List<QuickbooksAPI.QuickbooksWriteResult> results = reader.writeEntities(buffer);
+
+         for(int i = 0; i < results.size(); i++) {
+            final QuickbooksAPI.QuickbooksWriteResult result = results.get(i);
+
+            if(result.getError() == null) {
+               written++;
+            }
+            else {
+               final Object id = buffer.get(i).get("id");
+               failures.add(RowFactory.create(partitionId, rowIndex + i,
+                                              id == null ? null : id.toString(),
+                                              result.getError()));
+            }
+         }
+
+         rowIndex += buffer.size();
+         buffer.clear();
+      }
+
+      private final QuickbooksStreamReader reader;
+      private final StructField[] fields;
+      private final int partitionId;
+      private final List<Map<String, Object>> buffer = new ArrayList<>();
+      private final List<Row> failures = new ArrayList<>();
+      private int written;
+      private int rowIndex;
+   }
+
+   private static class QuickbooksCommitMessage implements WriterCommitMessage {
+      QuickbooksCommitMessage(int written, List<Row> failures) {
+         this.written = written;
+         this.failures = failures;
+      }
+
+      private final int written;
+      private final List<Row> failures;
+   }
+
+   /**
+    * Convert a row to the entity properties. Flattened column names such as
+    * {@code customerRef_value} or {@code line_0_amount} are expanded back to nested maps and
+    * lists, null values are left out.
+    */
+   static Map<String, Object> toEntityProperties(InternalRow row, StructField[] fields) {
+      final Map<String, Object> properties = new LinkedHashMap<>();
+
+      for(int i = 0; i < fields.length; i++) {
+         if(!row.isNullAt(i)) {
+            final Object value = toJavaValue(row.get(i, fields[i].dataType()), fields[i].dataType());
+            putProperty(properties, fields[i].name().split("_"), 0, value);
+         }
+      }
+
+      return properties;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static void putProperty(Map<String, Object> parent, String[] path, int index,
+                                   Object value)
+   {
+      final String name = path[index];
+
+      if(index == path.length - 1) {
+         parent.put(name, value);
+      }
+      else if(index + 1 < path.length - 1 && path[index + 1].matches("\\d+")) {
+         final List<Object> list = (List<Object>) parent.computeIfAbsent(name, k -> new ArrayList<>());
+         final int element = Integer.parseInt(path[index + 1]);
+
+         while(list.size() <= element) {
+            list.add(new LinkedHashMap<String, Object>());
+         }
+
+         putProperty((Map<String, Object>) list.get(element), path, index + 2, value);
+      }
+      else {
+         final Map<String, Object> child =
+            (Map<String, Object>) parent.computeIfAbsent(name, k -> new LinkedHashMap<>());
+         putProperty(child, path, index + 1, value);
+      }
+   }
+
+   private static Object toJavaValue(Object value, DataType type) {
+      if(value == null) {
+         return null;
+      }
+      else if(value instanceof UTF8String) {
+         return value.toString();
+      }
+      else if(value instanceof Decimal) {
+         return ((Decimal) value).toJavaBigDecimal();
+      }
+      else if(type instanceof StructType) {
+         return toEntityProperties((InternalRow) value, ((StructType) type).fields());
+      }
+      else if(type instanceof ArrayType) {
+         final ArrayData array = (ArrayData) value;
+         final DataType elementType = ((ArrayType) type).elementType();
+         final List<Object> list = new ArrayList<>();
+
+         for(int i = 0; i < array.numElements(); i++) {
+            list.add(array.isNullAt(i) ? null : toJavaValue(array.get(i, elementType), elementType));
+         }
+
+         return list;
+      }
+      else if(type == DataTypes.DateType) {
+         return LocalDate.ofEpochDay((Integer) value).toString();
+      }
+      else if(type == DataTypes.TimestampType) {
+         // timestamps are stored as microseconds
+         return (Long) value / 1000L;
+      }
+
+      return value;
+   }
+
+   // rows buffered per request to the runtime, written in batches of 30 operations
+   private static final int BUFFER_SIZE = 300;
+   private static final StructType FAILURE_SCHEMA = new StructType()
+      .add("partition", DataTypes.IntegerType, false)
+      .add("row", DataTypes.IntegerType, false)
+      .add("id", DataTypes.StringType, true)
+      .add("error", DataTypes.StringType, true);
+   private static final Map<String, List<Row>> writeFailures = new ConcurrentHashMap<>();
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final QuickbooksDataSourceOptions options;
+   private final StructType schema;
+   private final String writeId;
+}
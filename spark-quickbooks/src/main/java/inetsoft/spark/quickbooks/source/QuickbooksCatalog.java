@@ -0,0 +1,260 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import org.apache.spark.sql.catalyst.analysis.NoSuchNamespaceException;
+import org.apache.spark.sql.catalyst.analysis.NoSuchTableException;
+import org.apache.spark.sql.connector.catalog.*;
+import org.apache.spark.sql.connector.expressions.Transform;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.sql.util.CaseInsensitiveStringMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog of the entities of QuickBooks companies, registered with
+ * {@code spark.sql.catalog.qbo=inetsoft.spark.quickbooks.source.QuickbooksCatalog}. Each company
+ * is a namespace and each entity a table, e.g. {@code qbo.`123145`.Invoice}. The catalog options
+ * are the data source options of every table, options prefixed by a company ID, e.g.
+ * {@code 123145.accessToken}, only apply to that company.
+ * <p>
+ * Listing tables doesn't call the API. The schemas of every entity of a company are sampled
+ * together in the background the first time the company is used and cached for
+ * schemaCacheSeconds, so describing a table usually doesn't wait for a request.
+ */
+public class QuickbooksCatalog implements TableCatalog, SupportsNamespaces {
+   @Override
+   public void initialize(String name, CaseInsensitiveStringMap options) {
+      this.name = name;
+      this.options = new HashMap<>(options.asCaseSensitiveMap());
+      this.options.putIfAbsent("production", "false");
+      this.options.putIfAbsent("schemaCacheSeconds", String.valueOf(DEFAULT_SCHEMA_CACHE_SECONDS));
+      final String entities = this.options.remove("entities");
+      this.entities = entities == null ? DEFAULT_ENTITIES : Arrays.stream(entities.split(","))
+         .map(String::trim)
+         .filter(entity -> !entity.isEmpty())
+         .collect(Collectors.toList());
+      final String companyIds = this.options.getOrDefault("companyIds",
+                                                          this.options.get("companyId"));
+      this.companyIds = companyIds == null ? Collections.emptyList() :
+         Arrays.stream(companyIds.split(","))
+               .map(String::trim)
+               .filter(id -> !id.isEmpty())
+               .collect(Collectors.toList());
+   }
+
+   @Override
+   public String name() {
+      return name;
+   }
+
+   @Override
+   public String[][] listNamespaces() {
+      return companyIds.stream().map(id -> new String[]{ id }).toArray(String[][]::new);
+   }
+
+   @Override
+   public String[][] listNamespaces(String[] namespace) throws NoSuchNamespaceException {
+      checkNamespace(namespace);
+      return new String[0][];
+   }
+
+   @Override
+   public Map<String, String> loadNamespaceMetadata(String[] namespace)
+      throws NoSuchNamespaceException
+   {
+      checkNamespace(namespace);
+      return Collections.emptyMap();
+   }
+
+   @Override
+   public void createNamespace(String[] namespace, Map<String, String> metadata) {
+      throw new UnsupportedOperationException("QuickBooks companies can't be created");
+   }
+
+   @Override
+   public void alterNamespace(String[] namespace, NamespaceChange... changes) {
+      throw new UnsupportedOperationException("QuickBooks companies can't be altered");
+   }
+
+   @Override
+   public boolean dropNamespace(String[] namespace) {
+      throw new UnsupportedOperationException("QuickBooks companies can't be dropped");
+   }
+
+   @Override
+   public Identifier[] listTables(String[] namespace) throws NoSuchNamespaceException {
+      checkNamespace(namespace);
+      loadSchemas(namespace[0]);
+      return entities.stream()
+                     .map(entity -> Identifier.of(namespace, entity))
+                     .toArray(Identifier[]::new);
+   }
+
+   /**
+    * Create the table of an entity. The schema is sampled when it's first needed unless the
+    * schemas of the company are already cached or being loaded.
+    */
+   @Override
+   public Table loadTable(Identifier ident) throws NoSuchTableException {
+      final String entity = ident.namespace().length != 1 ? null : getEntity(ident.name());
+
+      if(entity == null) {
+         throw new NoSuchTableException(ident);
+      }
+
+      final String companyId = ident.namespace()[0];
+
+      try {
+         loadSchemas(companyId).join();
+      }
+      catch(CompletionException e) {
+         // the table samples its own schema
+         LOG.warn("Failed to load the schemas of QuickBooks company {}", companyId, e);
+      }
+
+      final QuickbooksDataSourceOptions tableOptions =
+         getOptions(companyId).withOption("entity", entity);
+      return new QuickbooksTable(tableOptions, new QuickbooksStreamReader(tableOptions));
+   }
+
+   /**
+    * Drop the cached schema of an entity, e.g. on REFRESH TABLE, so it's sampled again
+    */
+   @Override
+   public void invalidateTable(Identifier ident) {
+      final String entity = getEntity(ident.name());
+
+      if(ident.namespace().length == 1 && entity != null) {
+         QuickbooksSchemaCache.invalidate(getOptions(ident.namespace()[0]), entity);
+      }
+   }
+
+   @Override
+   public Table createTable(Identifier ident, StructType schema, Transform[] partitions,
+                            Map<String, String> properties)
+   {
+      throw new UnsupportedOperationException("QuickBooks entities can't be created");
+   }
+
+   @Override
+   public Table alterTable(Identifier ident, TableChange... changes) {
+      throw new UnsupportedOperationException("QuickBooks entities can't be altered");
+   }
+
+   @Override
+   public boolean dropTable(Identifier ident) {
+      throw new UnsupportedOperationException("QuickBooks entities can't be dropped");
+   }
+
+   @Override
+   public void renameTable(Identifier oldIdent, Identifier newIdent) {
+      throw new UnsupportedOperationException("QuickBooks entities can't be renamed");
+   }
+
+   /**
+    * Start sampling the schemas of every entity of a company in the background, once per
+    * schemaCacheSeconds
+    */
+   private CompletableFuture<Void> loadSchemas(String companyId) {
+      final QuickbooksDataSourceOptions companyOptions = getOptions(companyId);
+      final long now = System.currentTimeMillis();
+
+      return schemaLoads.compute(companyId, (key, load) -> {
+         if(load != null && now - load.started < companyOptions.getSchemaCacheSeconds() * 1000L) {
+            return load;
+         }
+
+         return new SchemaLoad(now, CompletableFuture.runAsync(
+            () -> QuickbooksSchemaCache.load(companyOptions, entities), EXECUTOR));
+      }).future;
+   }
+
+   /**
+    * @return the name of the entity of a table, which is case insensitive, or null if the entity
+    * isn't in the catalog
+    */
+   private String getEntity(String table) {
+      return entities.stream()
+                     .filter(entity -> entity.equalsIgnoreCase(table))
+                     .findFirst()
+                     .orElse(null);
+   }
+
+   /**
+    * @return the catalog options with the options of a company applied
+    */
+   private QuickbooksDataSourceOptions getOptions(String companyId) {
+      final Map<String, String> companyOptions = new HashMap<>();
+      final String prefix = companyId + ".";
+
+      options.forEach((key, value) -> {
+         if(!key.startsWith(prefix)) {
+            companyOptions.putIfAbsent(key, value);
+         }
+         else {
+            companyOptions.put(key.substring(prefix.length()), value);
+         }
+      });
+
+      companyOptions.put("companyId", companyId);
+      return QuickbooksDataSourceOptions.from(companyOptions);
+   }
+
+   private static void checkNamespace(String[] namespace) throws NoSuchNamespaceException {
+      // any company can be read, not just the listed ones
+      if(namespace.length != 1) {
+         throw new NoSuchNamespaceException(namespace);
+      }
+   }
+
+   private static final class SchemaLoad {
+      SchemaLoad(long started, CompletableFuture<Void> future) {
+         this.started = started;
+         this.future = future;
+      }
+
+      private final long started;
+      private final CompletableFuture<Void> future;
+   }
+
+   // entities that can be queried in every company
+   private static final List<String> DEFAULT_ENTITIES = Collections.unmodifiableList(Arrays.asList(
+      "Account", "Attachable", "Bill", "BillPayment", "Budget", "Class", "CompanyInfo",
+      "CreditMemo", "Customer", "Department", "Deposit", "Employee", "Estimate", "Invoice", "Item",
+      "JournalEntry", "Payment", "PaymentMethod", "Preferences", "Purchase", "PurchaseOrder",
+      "RefundReceipt", "SalesReceipt", "TaxAgency", "TaxCode", "TaxRate", "Term", "TimeActivity",
+      "Transfer", "Vendor", "VendorCredit"));
+   private static final int DEFAULT_SCHEMA_CACHE_SECONDS = 3600;
+   private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+      final Thread thread = new Thread(runnable, "quickbooks-catalog");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private String name;
+   private Map<String, String> options;
+   private List<String> entities;
+   private List<String> companyIds;
+   // the schema sampling of each company
+   private final Map<String, SchemaLoad> schemaLoads = new ConcurrentHashMap<>();
+}
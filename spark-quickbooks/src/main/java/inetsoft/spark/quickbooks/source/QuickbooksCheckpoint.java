@@ -0,0 +1,266 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import inetsoft.spark.quickbooks.QuickbooksUtil;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.UnsafeProjection;
+import org.apache.spark.sql.catalyst.expressions.UnsafeRow;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Spill files of the chunks of a partition that have been converted. A retry of a failed task
+ * replays the finished chunks from disk and only fetches the rest. Checkpoints are keyed by the
+ * partition and the time the scan was planned, so a new query never reads the chunks of an
+ * earlier one, and are deleted when the partition has been read.
+ */
+public class QuickbooksCheckpoint {
+   private QuickbooksCheckpoint(File dir, StructType readSchema) {
+      this.dir = dir;
+      this.readSchema = readSchema;
+   }
+
+   /**
+    * Create the checkpoint of a partition
+    *
+    * @param options    the options of the partition, including its range
+    * @param readSchema the schema of the rows
+    * @param scanTime   the time the scan was planned
+    */
+   public static QuickbooksCheckpoint create(QuickbooksDataSourceOptions options,
+                                             StructType readSchema, long scanTime)
+   {
+      final String key = QuickbooksResultCache.getKey(options, readSchema) + "|" + scanTime;
+      final File root = new File(QuickbooksUtil.getQbLibDir(), "checkpoints");
+      deleteExpired(root);
+      return new QuickbooksCheckpoint(new File(root, hash(key)), readSchema);
+   }
+
+   /**
+    * Check if the chunk starting at a position has been saved
+    */
+   public boolean contains(int start) {
+      return getChunkFile(start).exists();
+   }
+
+   /**
+    * Read the rows of a saved chunk
+    */
+   public List<InternalRow> read(int start) throws IOException {
+      final List<InternalRow> rows = new ArrayList<>();
+      final int numFields = readSchema.length();
+
+      try(DataInputStream in = new DataInputStream(
+         new BufferedInputStream(new FileInputStream(getChunkFile(start)))))
+      {
+         for(int size = in.readInt(); size >= 0; size = in.readInt()) {
+            final byte[] bytes = new byte[size];
+            in.readFully(bytes);
+            final UnsafeRow row = new UnsafeRow(numFields);
+            row.pointTo(bytes, size);
+            rows.add(row);
+         }
+      }
+
+      LOG.debug("Replaying {} row(s) of chunk {} from {}", rows.size(), start, dir);
+      return rows;
+   }
+
+   /**
+    * Add a converted row of a chunk. The rows of the previous chunk are saved once the rows of a
+    * new chunk are added.
+    */
+   public void add(int start, InternalRow row) {
+      if(start != chunkStart) {
+         saveChunk();
+         chunkStart = start;
+         // replayed chunks are already saved
+         chunkRows = contains(start) ? null : new ArrayList<>();
+      }
+
+      if(chunkRows != null) {
+         if(projection == null) {
+            projection = UnsafeProjection.create(readSchema);
+         }
+
+         chunkRows.add(projection.apply(row).copy());
+      }
+   }
+
+   /**
+    * Delete the saved chunks once the partition has been read
+    */
+   public void delete() {
+      chunkRows = null;
+      deleteDir(dir);
+   }
+
+   private void saveChunk() {
+      if(chunkRows == null) {
+         return;
+      }
+
+      final File file = getChunkFile(chunkStart);
+      Path tempFile = null;
+
+      try {
+         createPrivateDir(dir);
+         // the rows are accounting data, the temporary file is only readable by its owner
+         tempFile = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+
+         try(DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(tempFile))))
+         {
+            for(UnsafeRow row : chunkRows) {
+               final byte[] bytes = row.getBytes();
+               out.writeInt(bytes.length);
+               out.write(bytes);
+            }
+
+            out.writeInt(-1);
+         }
+
+         // the chunk only exists once it is complete
+         Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+         LOG.debug("Saved {} row(s) of chunk {} to {}", chunkRows.size(), chunkStart, dir);
+      }
+      catch(IOException e) {
+         LOG.warn("Failed to save checkpoint of chunk {}", chunkStart, e);
+      }
+      finally {
+         deleteTempFile(tempFile);
+      }
+
+      chunkRows = null;
+   }
+
+   /**
+    * Create the directories of a checkpoint that only their owner can access
+    */
+   private static void createPrivateDir(File dir) throws IOException {
+      if(dir.isDirectory()) {
+         return;
+      }
+
+      final File parent = dir.getParentFile();
+
+      if(parent != null) {
+         createPrivateDir(parent);
+      }
+
+      final Path path = dir.toPath();
+
+      try {
+         if(path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectory(path, PosixFilePermissions.asFileAttribute(
+               PosixFilePermissions.fromString("rwx------")));
+         }
+         else {
+            Files.createDirectory(path);
+         }
+      }
+      catch(FileAlreadyExistsException e) {
+         // created by a concurrent task
+         if(!dir.isDirectory()) {
+            throw e;
+         }
+      }
+   }
+
+   private static void deleteTempFile(Path tempFile) {
+      if(tempFile != null) {
+         try {
+            Files.deleteIfExists(tempFile);
+         }
+         catch(IOException e) {
+            LOG.debug("Failed to delete checkpoint file {}", tempFile, e);
+         }
+      }
+   }
+
+   private File getChunkFile(int start) {
+      return new File(dir, "chunk-" + start + ".bin");
+   }
+
+   /**
+    * Delete the checkpoints of queries that didn't finish
+    */
+   private static void deleteExpired(File root) {
+      final File[] dirs = root.listFiles(File::isDirectory);
+      final long expired = System.currentTimeMillis() - EXPIRATION_MILLIS;
+
+      if(dirs != null) {
+         Arrays.stream(dirs)
+               .filter(dir -> dir.lastModified() < expired)
+               .forEach(QuickbooksCheckpoint::deleteDir);
+      }
+   }
+
+   private static void deleteDir(File dir) {
+      final File[] files = dir.listFiles();
+
+      if(files != null) {
+         for(File file : files) {
+            if(!file.delete()) {
+               LOG.debug("Failed to delete checkpoint file {}", file);
+            }
+         }
+      }
+
+      if(dir.exists() && !dir.delete()) {
+         LOG.debug("Failed to delete checkpoint directory {}", dir);
+      }
+   }
+
+   private static String hash(String key) {
+      try {
+         final byte[] digest = MessageDigest.getInstance("SHA-256")
+                                            .digest(key.getBytes(StandardCharsets.UTF_8));
+         final StringBuilder hex = new StringBuilder();
+
+         for(int i = 0; i < 16; i++) {
+            hex.append(String.format("%02x", digest[i]));
+         }
+
+         return hex.toString();
+      }
+      catch(NoSuchAlgorithmException e) {
+         return Integer.toHexString(key.hashCode());
+      }
+   }
+
+   private static final long EXPIRATION_MILLIS = 24L * 60 * 60 * 1000;
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final File dir;
+   private final StructType readSchema;
+   private UnsafeProjection projection;
+   private int chunkStart = -1;
+   private List<UnsafeRow> chunkRows;
+}
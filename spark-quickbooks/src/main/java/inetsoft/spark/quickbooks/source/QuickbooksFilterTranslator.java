@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.sql.sources.*;
+
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Translates Spark filters to QuickBooks query conditions. QuickBooks only supports a subset
+ * of comparisons, which can only be combined with AND, and only some fields of each entity can
+ * be filtered. Filters that can't be translated are left for Spark to evaluate, as are string
+ * comparisons that QuickBooks evaluates case insensitively.
+ */
+public class QuickbooksFilterTranslator {
+   /**
+    * @param filterFields the column names that QuickBooks can filter by
+    */
+   public QuickbooksFilterTranslator(Set<String> filterFields) {
+      this.filterFields = filterFields.stream()
+                                      .map(QuickbooksFilterTranslator::normalize)
+                                      .collect(Collectors.toSet());
+   }
+
+   /**
+    * Translate a filter
+    *
+    * @return the query condition or null if the filter can't be evaluated by QuickBooks
+    */
+   public String translate(Filter filter) {
+      if(filter instanceof And) {
+         final String left = translate(((And) filter).left());
+         final String right = translate(((And) filter).right());
+         return left == null || right == null ? null : left + " AND " + right;
+      }
+      else if(filter instanceof EqualTo) {
+         return compare(((EqualTo) filter).attribute(), "=", ((EqualTo) filter).value());
+      }
+      else if(filter instanceof GreaterThan) {
+         return compare(((GreaterThan) filter).attribute(), ">", ((GreaterThan) filter).value());
+      }
+      else if(filter instanceof GreaterThanOrEqual) {
+         final GreaterThanOrEqual greaterThanOrEqual = (GreaterThanOrEqual) filter;
+         return compare(greaterThanOrEqual.attribute(), ">=", greaterThanOrEqual.value());
+      }
+      else if(filter instanceof LessThan) {
+         return compare(((LessThan) filter).attribute(), "<", ((LessThan) filter).value());
+      }
+      else if(filter instanceof LessThanOrEqual) {
+         final LessThanOrEqual lessThanOrEqual = (LessThanOrEqual) filter;
+         return compare(lessThanOrEqual.attribute(), "<=", lessThanOrEqual.value());
+      }
+      else if(filter instanceof In) {
+         return in(((In) filter).attribute(), ((In) filter).values());
+      }
+      else if(filter instanceof StringStartsWith) {
+         final StringStartsWith startsWith = (StringStartsWith) filter;
+         return like(startsWith.attribute(), startsWith.value(), "", "%");
+      }
+      else if(filter instanceof StringEndsWith) {
+         final StringEndsWith endsWith = (StringEndsWith) filter;
+         return like(endsWith.attribute(), endsWith.value(), "%", "");
+      }
+      else if(filter instanceof StringContains) {
+         final StringContains contains = (StringContains) filter;
+         return like(contains.attribute(), contains.value(), "%", "%");
+      }
+
+      return null;
+   }
+
+   /**
+    * Check if QuickBooks evaluates a translated filter exactly like Spark. QuickBooks compares
+    * strings case insensitively, so string comparisons other than on IDs narrow the query but
+    * must still be evaluated by Spark. IDs are compared as numbers by QuickBooks and as strings
+    * by Spark, so only their equality is exact, e.g. QuickBooks returns Id '10' for Id > '9'.
+    */
+   public boolean isExact(Filter filter) {
+      if(filter instanceof And) {
+         return isExact(((And) filter).left()) && isExact(((And) filter).right());
+      }
+      else if(filter instanceof EqualTo) {
+         return isExactEquality(((EqualTo) filter).attribute(), ((EqualTo) filter).value());
+      }
+      else if(filter instanceof GreaterThan) {
+         return isExactRange(((GreaterThan) filter).value());
+      }
+      else if(filter instanceof GreaterThanOrEqual) {
+         return isExactRange(((GreaterThanOrEqual) filter).value());
+      }
+      else if(filter instanceof LessThan) {
+         return isExactRange(((LessThan) filter).value());
+      }
+      else if(filter instanceof LessThanOrEqual) {
+         return isExactRange(((LessThanOrEqual) filter).value());
+      }
+      else if(filter instanceof In) {
+         final String attribute = ((In) filter).attribute();
+         return Arrays.stream(((In) filter).values())
+                      .allMatch(value -> isExactEquality(attribute, value));
+      }
+
+      // LIKE is case insensitive
+      return false;
+   }
+
+   private boolean isExactEquality(String attribute, Object value) {
+      if(!(value instanceof String)) {
+         return true;
+      }
+
+      // IDs and reference IDs are numbers stored as strings
+      final String column = normalize(attribute);
+      return "id".equals(column) || column.endsWith("ref_value");
+   }
+
+   private boolean isExactRange(Object value) {
+      // strings are compared case insensitively or, for IDs, as numbers
+      return !(value instanceof String);
+   }
+
+   private String compare(String attribute, String operator, Object value) {
+      final String field = getQueryField(attribute);
+      final String literal = field == null ? null : toLiteral(value);
+      return literal == null ? null : field + " " + operator + " " + literal;
+   }
+
+   private String in(String attribute, Object[] values) {
+      final String field = getQueryField(attribute);
+
+      if(field == null || values.length == 0) {
+         return null;
+      }
+
+      final List<String> literals = new ArrayList<>();
+
+      for(Object value : values) {
+         final String literal = toLiteral(value);
+
+         if(literal == null) {
+            return null;
+         }
+
+         literals.add(literal);
+      }
+
+      return field + " IN (" + String.join(", ", literals) + ")";
+   }
+
+   private String like(String attribute, String value, String prefix, String suffix) {
+      final String field = getQueryField(attribute);
+
+      // % is the only wildcard and can't be escaped
+      if(field == null || value.contains("%")) {
+         return null;
+      }
+
+      return field + " LIKE " + quote(prefix + value + suffix);
+   }
+
+   /**
+    * Get the QuickBooks field of a column, e.g. metaData_lastUpdatedTime is
+    * MetaData.LastUpdatedTime
+    *
+    * @return the query field or null if the column can't be filtered
+    */
+   private String getQueryField(String attribute) {
+      if(!filterFields.contains(normalize(attribute))) {
+         return null;
+      }
+
+      final List<String> tokens =
+         new ArrayList<>(Arrays.asList(attribute.replace("`", "").split("[._]")));
+
+      // references are filtered by their value, e.g. CustomerRef = '1'
+      if(tokens.size() > 1 && "value".equalsIgnoreCase(tokens.get(tokens.size() - 1))) {
+         tokens.remove(tokens.size() - 1);
+      }
+
+      return tokens.stream()
+                   .map(token -> Character.toUpperCase(token.charAt(0)) + token.substring(1))
+                   .collect(Collectors.joining("."));
+   }
+
+   private String toLiteral(Object value) {
+      if(value instanceof String) {
+         return quote((String) value);
+      }
+      else if(value instanceof Timestamp) {
+         return toDateTimeLiteral(((Timestamp) value).getTime());
+      }
+      else if(value instanceof java.sql.Date) {
+         return quote(((java.sql.Date) value).toLocalDate().toString());
+      }
+      else if(value instanceof LocalDate) {
+         return quote(value.toString());
+      }
+      else if(value instanceof Instant) {
+         return toDateTimeLiteral(((Instant) value).toEpochMilli());
+      }
+      else if(value instanceof Number || value instanceof Boolean) {
+         return value.toString();
+      }
+
+      return null;
+   }
+
+   /**
+    * QuickBooks compares date times with second precision, times with milliseconds are left for
+    * Spark to compare
+    */
+   private String toDateTimeLiteral(long millis) {
+      if(millis % 1000 != 0) {
+         return null;
+      }
+
+      return quote(DATE_TIME_FORMAT.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC)));
+   }
+
+   private static String quote(String value) {
+      return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+   }
+
+   private static String normalize(String column) {
+      return column.replace("`", "").replace('.', '_').toLowerCase();
+   }
+
+   private static final DateTimeFormatter DATE_TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+   private final Set<String> filterFields;
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import com.codahale.metrics.MetricRegistry;
+import inetsoft.spark.quickbooks.QuickbooksMetrics;
+import org.apache.spark.SparkEnv;
+import org.apache.spark.metrics.source.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spark metrics source of the QuickBooks requests and row conversion of this JVM. Metrics are
+ * named by company and entity, e.g. quickbooks.123145.Invoice.batch.latency, and are published
+ * by the sinks configured in the Spark metrics configuration. The requests are also recorded as
+ * spans of the current {@link QuickbooksTrace}.
+ */
+public class QuickbooksMetricsSource implements Source, QuickbooksMetrics.Listener {
+   private QuickbooksMetricsSource() {
+   }
+
+   /**
+    * Get the metrics source of this JVM, registering it with the Spark metrics system and as the
+    * listener of the runtime measurements the first time
+    */
+   public static synchronized QuickbooksMetricsSource get() {
+      if(instance == null) {
+         instance = new QuickbooksMetricsSource();
+         QuickbooksMetrics.setListener(instance);
+         final SparkEnv env = SparkEnv.get();
+
+         if(env != null) {
+            try {
+               env.metricsSystem().registerSource(instance);
+            }
+            catch(RuntimeException e) {
+               LOG.warn("Failed to register the QuickBooks metrics source", e);
+            }
+         }
+      }
+
+      return instance;
+   }
+
+   @Override
+   public String sourceName() {
+      return "quickbooks";
+   }
+
+   @Override
+   public MetricRegistry metricRegistry() {
+      return registry;
+   }
+
+   @Override
+   public void requestCompleted(String companyId, String entity, String type, long millis,
+                                int queries, long rows, long bytes)
+   {
+      registry.timer(MetricRegistry.name(companyId, entity, type, "latency"))
+              .update(millis, TimeUnit.MILLISECONDS);
+      registry.histogram(MetricRegistry.name(companyId, entity, type, "queries")).update(queries);
+
+      if(rows > 0) {
+         registry.meter(MetricRegistry.name(companyId, entity, "rowsFetched")).mark(rows);
+      }
+
+      if(bytes >= 0) {
+         registry.counter(MetricRegistry.name(companyId, entity, "bytesReceived")).inc(bytes);
+      }
+
+      QuickbooksTrace.endMillis(type, entity, millis, "queries", queries, "rows", rows,
+                                "bytes", bytes);
+   }
+
+   @Override
+   public void throttled(String companyId, String entity, long waitMillis) {
+      registry.timer(MetricRegistry.name(companyId, entity, "throttleWait"))
+              .update(waitMillis, TimeUnit.MILLISECONDS);
+      final QuickbooksTrace trace = QuickbooksTrace.current();
+
+      // the listener is called before waiting, the span covers the wait that follows
+      if(trace != null) {
+         trace.complete("throttle", entity, System.nanoTime(),
+                        TimeUnit.MILLISECONDS.toNanos(waitMillis));
+      }
+   }
+
+   @Override
+   public void tokenFetched(String companyId, long millis) {
+      registry.timer(MetricRegistry.name(companyId, "token", "latency"))
+              .update(millis, TimeUnit.MILLISECONDS);
+      QuickbooksTrace.endMillis("token", companyId, millis);
+   }
+
+   /**
+    * Record the rows converted by a partition
+    *
+    * @param convertNanos the time spent converting the rows
+    */
+   public void rowsConverted(String companyId, String entity, long rows, long convertNanos) {
+      if(rows > 0) {
+         registry.meter(MetricRegistry.name(companyId, entity, "rowsConverted")).mark(rows);
+         registry.histogram(MetricRegistry.name(companyId, entity, "conversionNanosPerRow"))
+                 .update(convertNanos / rows);
+      }
+   }
+
+   private static QuickbooksMetricsSource instance;
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final MetricRegistry registry = new MetricRegistry();
+}
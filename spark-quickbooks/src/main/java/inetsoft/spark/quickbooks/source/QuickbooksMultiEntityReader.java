@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import inetsoft.spark.quickbooks.SparkSchema;
+import org.apache.spark.sql.*;
+import org.apache.spark.sql.catalyst.InternalRow;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads several entities in one pass. The pages of every entity in the {@code entities} option
+ * are packed into shared batch operations and each entity is returned as its own data frame.
+ */
+public class QuickbooksMultiEntityReader {
+   private QuickbooksMultiEntityReader() {
+   }
+
+   /**
+    * Load the entities in the {@code entities} option
+    *
+    * @param session the spark session to create the data frames in
+    * @param options the data source options
+    *
+    * @return a data frame for each entity keyed by entity name, in request order
+    */
+   public static Map<String, Dataset<Row>> load(SparkSession session, Map<String, String> options) {
+      final QuickbooksDataSourceOptions quickbooksOptions = QuickbooksDataSourceOptions.from(options);
+      final QuickbooksStreamReader reader = new QuickbooksStreamReader(quickbooksOptions);
+      final Map<String, List<Object>> entities = reader.getEntitiesByName();
+      final Map<String, Dataset<Row>> frames = new LinkedHashMap<>();
+
+      for(Map.Entry<String, List<Object>> entry : entities.entrySet()) {
+         final List<Object> objects = entry.getValue();
+         // sample the first object, same as the schema query of a single entity read
+         final SparkSchema schema = reader.createSchema(objects.isEmpty() ?
+                                                           Collections.emptyList() :
+                                                           objects.subList(0, 1));
+         final QuickbooksPartitionReader rowReader =
+            new QuickbooksPartitionReader(objects.iterator(), schema);
+         final InternalRow[] rows = new InternalRow[objects.size()];
+
+         for(int i = 0; rowReader.next(); i++) {
+            rows[i] = rowReader.get();
+         }
+
+         final String prefetchId = UUID.randomUUID().toString();
+         prefetchedEntities.put(prefetchId, new PrefetchedEntity(schema, rows));
+
+         try {
+            final Dataset<Row> frame = session.read()
+                                              .format(DefaultSource.class.getName())
+                                              .options(options)
+                                              .option("entity", entry.getKey())
+                                              .option(PREFETCH_ID_OPTION, prefetchId)
+                                              .load();
+            frames.put(entry.getKey(), frame);
+         }
+         finally {
+            // the table holds onto the rows once it has been created
+            prefetchedEntities.remove(prefetchId);
+         }
+      }
+
+      return frames;
+   }
+
+   /**
+    * Get the rows loaded for a table created by {@link #load(SparkSession, Map)}
+    */
+   static PrefetchedEntity getPrefetchedEntity(Map<String, String> options) {
+      final String prefetchId = options.get(PREFETCH_ID_OPTION);
+      return prefetchId == null ? null : prefetchedEntities.get(prefetchId);
+   }
+
+   /**
+    * The schema and converted rows of a single entity in a multi-entity read
+    */
+   public static class PrefetchedEntity {
+      PrefetchedEntity(SparkSchema schema, InternalRow[] rows) {
+         this.schema = schema;
+         this.rows = rows;
+      }
+
+      public SparkSchema getSchema() {
+         return schema;
+      }
+
+      public InternalRow[] getRows() {
+         return rows;
+      }
+
+      private final SparkSchema schema;
+      private final InternalRow[] rows;
+   }
+
+   private static final String PREFETCH_ID_OPTION = "prefetchId";
+   private static final Map<String, PrefetchedEntity> prefetchedEntities = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Iterator that fetches chunks of entities on a background thread while the previous chunk is
+ * converted. Fetched chunks wait in a queue of prefetchDepth chunks, the fetch thread blocks when
+ * the queue is full so no more than that many chunks are held in memory.
+ */
+public class QuickbooksPageFetcher implements Iterator<Object> {
+   private QuickbooksPageFetcher(QuickbooksStreamReader reader, int depth,
+                                 Function<QuickbooksStreamReader, List<?>> loader,
+                                 QuickbooksCheckpoint checkpoint)
+   {
+      this.queue = new ArrayBlockingQueue<>(depth);
+      final QuickbooksTrace trace = QuickbooksTrace.current();
+      this.fetch = EXECUTOR.submit(() -> {
+         // the spans of the fetch thread belong to the task that started it
+         QuickbooksTrace.setCurrent(trace);
+
+         try {
+            fetchChunks(reader, loader, checkpoint);
+         }
+         finally {
+            QuickbooksTrace.setCurrent(null);
+         }
+      });
+   }
+
+   /**
+    * Iterate over the entities of a reader, prefetching chunks if the prefetchDepth option is
+    * greater than 0
+    *
+    * @param loader     loads the entities of the range in the options of a reader
+    * @param checkpoint the converted chunks of an earlier attempt, which are returned as rows
+    *                   instead of being fetched again, or null
+    */
+   public static Iterator<Object> iterator(QuickbooksStreamReader reader,
+                                           Function<QuickbooksStreamReader, List<?>> loader,
+                                           QuickbooksCheckpoint checkpoint)
+   {
+      final int depth = reader.getOptions().getPrefetchDepth();
+
+      // ID lookups don't have positions to split into chunks
+      if(depth <= 0 || !reader.getOptions().getIds().isEmpty()) {
+         return Collections.<Object>unmodifiableList(loader.apply(reader)).iterator();
+      }
+
+      return new QuickbooksPageFetcher(reader, depth, loader, checkpoint);
+   }
+
+   /**
+    * @return the position of the first entity of the chunk of the last returned entity
+    */
+   public int getChunkStart() {
+      return chunkStart;
+   }
+
+   @Override
+   public boolean hasNext() {
+      while(chunk == null || !chunk.hasNext()) {
+         if(done) {
+            return false;
+         }
+
+         final Chunk next;
+
+         try {
+            next = queue.take();
+         }
+         catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RuntimeException("Interrupted while fetching QuickBooks entities", e);
+         }
+
+         if(next == END) {
+            done = true;
+
+            if(error != null) {
+               throw error;
+            }
+         }
+         else {
+            chunk = next.entities.iterator();
+            chunkStart = next.start;
+         }
+      }
+
+      return true;
+   }
+
+   @Override
+   public Object next() {
+      if(!hasNext()) {
+         throw new NoSuchElementException();
+      }
+
+      return chunk.next();
+   }
+
+   /**
+    * Cancel the outstanding fetches
+    */
+   public void close() {
+      done = true;
+      closed = true;
+      fetch.cancel(true);
+      queue.clear();
+   }
+
+   private void fetchChunks(QuickbooksStreamReader reader,
+                            Function<QuickbooksStreamReader, List<?>> loader,
+                            QuickbooksCheckpoint checkpoint)
+   {
+      try {
+         final QuickbooksDataSourceOptions options = reader.getOptions();
+         final int firstPosition = options.getStartPosition();
+         final int endPosition = firstPosition + (options.getMaxResults() > 0 ?
+            options.getMaxResults() : reader.getTotalCount() - firstPosition + 1);
+
+         // the first chunk is small so the first rows, e.g. of df.show(), arrive quickly. The
+         // chunk starts don't depend on the fetched rows so checkpoints of retries still match.
+         int size = FIRST_CHUNK_SIZE;
+
+         for(int start = firstPosition;
+             start < endPosition && !closed && !Thread.currentThread().isInterrupted();
+             start += size, size = Math.min(CHUNK_SIZE, size * 2))
+         {
+            final int chunkSize = Math.min(size, endPosition - start);
+            final List<?> entities;
+
+            final long begin = QuickbooksTrace.begin();
+
+            if(checkpoint != null && checkpoint.contains(start)) {
+               entities = checkpoint.read(start);
+               QuickbooksTrace.end("checkpoint", options.getEntity(), begin,
+                                   "start", start, "rows", entities.size());
+            }
+            else {
+               final QuickbooksStreamReader chunkReader = new QuickbooksStreamReader(
+                  options.withOption("startPosition", String.valueOf(start))
+                         .withOption("maxResults", String.valueOf(chunkSize)));
+               entities = loader.apply(chunkReader);
+               QuickbooksTrace.end("fetch", options.getEntity(), begin,
+                                   "start", start, "rows", entities.size());
+               LOG.debug("Fetched {} QuickBooks entities from position {}",
+                         entities.size(), start);
+            }
+
+            if(!enqueue(new Chunk(start, entities)) || entities.size() < chunkSize) {
+               break;
+            }
+         }
+      }
+      catch(InterruptedException e) {
+         LOG.debug("QuickBooks fetch cancelled");
+         return;
+      }
+      catch(IOException e) {
+         error = new RuntimeException("Failed to read QuickBooks checkpoint", e);
+      }
+      catch(RuntimeException e) {
+         error = e;
+      }
+
+      try {
+         enqueue(END);
+      }
+      catch(InterruptedException e) {
+         LOG.debug("QuickBooks fetch cancelled");
+      }
+   }
+
+   /**
+    * Wait for room in the queue until the fetcher is closed. The queue isn't drained after it
+    * has been closed, so a blocking put could wait forever if the interrupt was swallowed.
+    *
+    * @return false if the fetcher was closed
+    */
+   private boolean enqueue(Chunk chunk) throws InterruptedException {
+      while(!closed) {
+         if(queue.offer(chunk, ENQUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static final class Chunk {
+      Chunk(int start, List<?> entities) {
+         this.start = start;
+         this.entities = entities;
+      }
+
+      private final int start;
+      private final List<?> entities;
+   }
+
+   // entities of the largest batch request, BATCH_LIMIT (30) queries of the largest page (1000)
+   private static final int BATCH_ENTITIES = 30 * 1000;
+   // entities fetched by each call, whole batch requests so a chunk doesn't end in a partial
+   // batch, and small enough that conversion overlaps the next fetch
+   private static final int CHUNK_SIZE = BATCH_ENTITIES;
+   // one page, the following chunks double up to CHUNK_SIZE
+   private static final int FIRST_CHUNK_SIZE = 1000;
+   private static final long ENQUEUE_WAIT_MILLIS = 100L;
+   private static final Chunk END = new Chunk(0, Collections.emptyList());
+   private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+      final Thread thread = new Thread(runnable, "quickbooks-prefetch");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final BlockingQueue<Chunk> queue;
+   private final Future<?> fetch;
+   private volatile RuntimeException error;
+   private Iterator<?> chunk;
+   private int chunkStart;
+   private boolean done;
+   private volatile boolean closed;
+}
@@ -19,6 +19,8 @@ package inetsoft.spark.quickbooks.source;
 import inetsoft.spark.quickbooks.SparkSchema;
 import org.apache.spark.sql.catalyst.InternalRow;
 import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.catalyst.expressions.UnsafeProjection;
+import org.apache.spark.sql.catalyst.expressions.UnsafeRow;
 import org.apache.spark.sql.catalyst.util.ArrayData;
 import org.apache.spark.sql.connector.read.PartitionReader;
 import org.apache.spark.sql.types.*;
@@ -30,33 +32,258 @@ import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.*;
 
 public class QuickbooksPartitionReader implements PartitionReader<InternalRow> {
    public QuickbooksPartitionReader(QuickbooksStreamReader reader, SparkSchema schema) {
-      this.entitiesIter = reader.getEntities().iterator();
+      this(reader, schema, schema.getStructType());
+   }
+
+   /**
+    * @param readSchema the columns of the schema that are read
+    */
+   public QuickbooksPartitionReader(QuickbooksStreamReader reader, SparkSchema schema,
+                                    StructType readSchema)
+   {
+      this(reader, schema, readSchema, null);
+   }
+
+   /**
+    * @param readSchema the columns of the schema that are read
+    * @param checkpoint the checkpoint of the converted chunks of the partition, or null
+    */
+   public QuickbooksPartitionReader(QuickbooksStreamReader reader, SparkSchema schema,
+                                    StructType readSchema, QuickbooksCheckpoint checkpoint)
+   {
+      this(reader, schema, readSchema, checkpoint,
+           QuickbooksRefResolver.create(reader.getOptions(), readSchema));
+   }
+
+   /**
+    * @param resolver resolves the referenced entities of each fetched chunk, or null
+    */
+   private QuickbooksPartitionReader(QuickbooksStreamReader reader, SparkSchema schema,
+                                     StructType readSchema, QuickbooksCheckpoint checkpoint,
+                                     QuickbooksRefResolver resolver)
+   {
+      this(QuickbooksPageFetcher.iterator(reader, resolver == null ?
+              QuickbooksStreamReader::getEntities : resolver::getEntities, checkpoint),
+           schema, readSchema, QuickbooksStatistics.getEntityKey(reader.getOptions()), checkpoint);
+      this.resolver = resolver;
+   }
+
+   public QuickbooksPartitionReader(Iterator<Object> entitiesIter, SparkSchema schema) {
+      this(entitiesIter, schema, schema.getStructType(), null, null);
+   }
+
+   /**
+    * @param entityKey  the key used to record the observed row widths of the entity, null to
+    *                   not record them
+    * @param checkpoint the checkpoint of the converted chunks of the partition, or null
+    */
+   protected QuickbooksPartitionReader(Iterator<Object> entitiesIter, SparkSchema schema,
+                                       StructType readSchema, String entityKey,
+                                       QuickbooksCheckpoint checkpoint)
+   {
+      this.entitiesIter = entitiesIter;
       this.schema = schema;
+      this.readSchema = readSchema;
+      // widths are the widths of whole rows, don't record pruned rows
+      this.entityKey = readSchema.length() == schema.getStructType().length() ? entityKey : null;
+      this.checkpoint = checkpoint;
    }
 
    @Override
    public boolean next() {
+      final long start = System.nanoTime();
+
       if(entitiesIter.hasNext()) {
          currObj = entitiesIter.next();
+         fetchNanos += System.nanoTime() - start;
       }
       else {
          currObj = null;
+         putCachedResult();
+
+         if(checkpoint != null) {
+            checkpoint.delete();
+            checkpoint = null;
+         }
       }
 
       return currObj != null;
    }
 
+   /**
+    * Cache the rows in the result cache once every row has been read
+    *
+    * @param cacheKey  the key of the scan in the result cache
+    * @param ttlMillis the number of milliseconds the rows are cached
+    * @param maxBytes  the maximum size of the result cache
+    */
+   public void cacheResult(String cacheKey, long ttlMillis, long maxBytes) {
+      this.cacheKey = cacheKey;
+      this.cacheTtlMillis = ttlMillis;
+      this.cacheMaxBytes = maxBytes;
+      this.cachedRows = new ArrayList<>();
+   }
+
+   /**
+    * Add the totals of the partition to the metrics of the scan when the reader is closed
+    *
+    * @param metrics   the metrics of the scan
+    * @param companyId the company the rows are read from
+    * @param entity    the entity of the rows
+    */
+   public void reportMetrics(QuickbooksScanMetrics metrics, String companyId, String entity) {
+      this.scanMetrics = metrics;
+      this.companyId = companyId;
+      this.entity = entity;
+   }
+
+   /**
+    * Record the conversion of the rows in a trace that is written when the reader is closed
+    *
+    * @param trace  the trace of the task reading the partition
+    * @param entity the entity of the rows
+    */
+   public void trace(QuickbooksTrace trace, String entity) {
+      this.trace = trace;
+      this.traceEntity = entity;
+   }
+
    @Override
    public void close() {
+      if(trace != null) {
+         traceConversion();
+         trace.finish();
+         trace = null;
+      }
+
+      if(scanMetrics != null) {
+         scanMetrics.add(rows, fetchNanos, convertNanos);
+         QuickbooksMetricsSource.get().rowsConverted(companyId, entity, rows, convertNanos);
+         scanMetrics = null;
+      }
+
+      if(entityKey != null && sampledRows > 0) {
+         QuickbooksStatistics.saveRowWidth(entityKey);
+      }
+
+      if(entitiesIter instanceof QuickbooksPageFetcher) {
+         ((QuickbooksPageFetcher) entitiesIter).close();
+      }
    }
 
    @Override
    public InternalRow get() {
-      return createRow(currObj, schema);
+      final long start = System.nanoTime();
+      final InternalRow row = getRow(currObj);
+      final long elapsed = System.nanoTime() - start;
+      convertNanos += elapsed;
+      rows++;
+
+      if(trace != null) {
+         if(spanRows == 0) {
+            spanBegin = start;
+         }
+
+         spanNanos += elapsed;
+
+         if(++spanRows == CONVERT_SPAN_ROWS) {
+            traceConversion();
+         }
+      }
+
+      if(entityKey != null && row != null && sampledRows < WIDTH_SAMPLE_ROWS) {
+         sampledRows++;
+         recordRowWidth(row);
+      }
+
+      if(cachedRows != null && row != null) {
+         addCachedRow(row);
+      }
+
+      if(checkpoint != null && row != null && entitiesIter instanceof QuickbooksPageFetcher) {
+         checkpoint.add(((QuickbooksPageFetcher) entitiesIter).getChunkStart(), row);
+      }
+
+      return row;
+   }
+
+   /**
+    * Convert an object of the iterator to a row of the read schema
+    */
+   protected InternalRow toRow(Object entity) {
+      final InternalRow row = createRow(entity, schema, readSchema.fields());
+
+      if(resolver != null && row != null) {
+         resolver.resolve(entity, row);
+      }
+
+      return row;
+   }
+
+   /**
+    * Convert an object of the iterator, rows replayed from a checkpoint are already converted
+    */
+   private InternalRow getRow(Object entity) {
+      return entity instanceof InternalRow ? (InternalRow) entity : toRow(entity);
+   }
+
+   /**
+    * Record the conversion of the rows since the last span, the span starts at the first row and
+    * lasts as long as the conversion of the rows took
+    */
+   private void traceConversion() {
+      if(spanRows > 0) {
+         trace.complete("convert", traceEntity, spanBegin, spanNanos, "rows", spanRows);
+         spanRows = 0;
+         spanNanos = 0;
+      }
+   }
+
+   private void addCachedRow(InternalRow row) {
+      final UnsafeRow unsafeRow = getUnsafeProjection().apply(row).copy();
+      cachedBytes += unsafeRow.getSizeInBytes();
+
+      // stop collecting rows that won't fit in the cache
+      if(cachedBytes > cacheMaxBytes) {
+         cachedRows = null;
+      }
+      else {
+         cachedRows.add(unsafeRow);
+      }
+   }
+
+   private void putCachedResult() {
+      if(cachedRows != null) {
+         QuickbooksResultCache.put(cacheKey, cachedRows.toArray(new InternalRow[0]), cachedBytes,
+                                   cacheTtlMillis, cacheMaxBytes);
+         cachedRows = null;
+      }
+   }
+
+   private UnsafeProjection getUnsafeProjection() {
+      if(unsafeProjection == null) {
+         unsafeProjection = UnsafeProjection.create(readSchema);
+      }
+
+      return unsafeProjection;
+   }
+
+   private void recordRowWidth(InternalRow row) {
+      try {
+         QuickbooksStatistics.recordRowWidth(entityKey,
+                                             getUnsafeProjection().apply(row).getSizeInBytes());
+      }
+      catch(RuntimeException e) {
+         LOG.debug("Failed to measure row width of {}", entityKey, e);
+         sampledRows = WIDTH_SAMPLE_ROWS;
+      }
    }
 
    private InternalRow createRow(Object data, SparkSchema dataSchema) {
@@ -64,11 +291,23 @@ public class QuickbooksPartitionReader implements PartitionReader<InternalRow> {
          return null;
       }
 
+      return createRow(data, dataSchema, dataSchema.getStructType().fields());
+   }
+
+   private InternalRow createRow(Object data, SparkSchema dataSchema, StructField[] fields) {
+      if(data == null || dataSchema == null) {
+         return null;
+      }
+
       final List<Object> cells = new ArrayList<>();
-      final StructType structType = dataSchema.getStructType();
-      StructField[] fields = structType.fields();
 
       for(StructField structField : fields) {
+         // columns of referenced entities are filled by the resolver
+         if(QuickbooksRefResolver.isResolvedColumn(structField)) {
+            cells.add(null);
+            continue;
+         }
+
          // try to get data from object
          final Object result = getObjectByField(data, structField, dataSchema);
          cells.add(result);
@@ -161,21 +400,66 @@ public class QuickbooksPartitionReader implements PartitionReader<InternalRow> {
          result = createRow(result, schema);
       }
       else if(result instanceof Date) {
-         result = ((Date) result).getTime();
-      }
-      else if(result instanceof Enum) {
-         result = UTF8String.fromString(result.toString());
+         result = toDateValue((Date) result, field.dataType());
       }
-      else if(result instanceof String) {
-         result = UTF8String.fromString((String) result);
+      else if(result instanceof Enum || result instanceof String) {
+         result = toUTF8String(result, field);
       }
-      else if(result instanceof BigDecimal) {
-         result = Decimal.apply((BigDecimal) result);
+      else if(result instanceof BigDecimal && field.dataType() instanceof DecimalType) {
+         result = toDecimal((BigDecimal) result, field);
       }
 
       return result;
    }
 
+   /**
+    * Encode a string or enum value of a column, sharing the UTF8String of repeated values
+    */
+   protected UTF8String toUTF8String(Object value, StructField field) {
+      return dictionaries.computeIfAbsent(field, key -> new QuickbooksStringDictionary())
+                         .get(value);
+   }
+
+   /**
+    * Convert an amount to a decimal of the column type, which keeps it as an unscaled long when
+    * the precision of the type fits in a long
+    *
+    * @return the decimal, or null if the amount doesn't fit the precision of the type
+    */
+   protected static Decimal toDecimal(BigDecimal value, StructField field) {
+      final DecimalType type = (DecimalType) field.dataType();
+      final BigDecimal scaled = value.setScale(type.scale(), RoundingMode.HALF_UP);
+
+      if(scaled.precision() > type.precision()) {
+         LOG.warn("QuickBooks amount {} of column {} doesn't fit {}, using null",
+                  value, field.name(), type.simpleString());
+         return null;
+      }
+
+      if(type.precision() <= Decimal.MAX_LONG_DIGITS()) {
+         return new Decimal().set(scaled.unscaledValue().longValue(), type.precision(),
+                                  type.scale());
+      }
+
+      return Decimal.apply(scaled, type.precision(), type.scale());
+   }
+
+   /**
+    * Convert a date of an SDK entity to the days of a date column or the microseconds of a
+    * timestamp column. Dates without a time are parsed by the SDK at midnight in the default
+    * time zone, so the day is taken in that zone.
+    */
+   static Object toDateValue(Date date, DataType type) {
+      if(type == DataTypes.DateType) {
+         return (int) Instant.ofEpochMilli(date.getTime())
+                             .atZone(ZoneId.systemDefault())
+                             .toLocalDate()
+                             .toEpochDay();
+      }
+
+      return date.getTime() * 1000L;
+   }
+
    private Object callMethodOnObject(Object bean, String methodName) {
       if(methodName == null) {
          return null;
@@ -192,8 +476,37 @@ public class QuickbooksPartitionReader implements PartitionReader<InternalRow> {
       }
    }
 
+   // number of rows in each partition measured for the row width statistics
+   private static final int WIDTH_SAMPLE_ROWS = 100;
+   // number of converted rows in each conversion span of a trace
+   private static final int CONVERT_SPAN_ROWS = 10000;
    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
    private Object currObj;
    private final Iterator<Object> entitiesIter;
    private final SparkSchema schema;
+   private final StructType readSchema;
+   private final String entityKey;
+   private int sampledRows;
+   private UnsafeProjection unsafeProjection;
+   private String cacheKey;
+   private long cacheTtlMillis;
+   private long cacheMaxBytes;
+   private long cachedBytes;
+   private List<InternalRow> cachedRows;
+   private QuickbooksCheckpoint checkpoint;
+   private QuickbooksRefResolver resolver;
+   // the values of the string columns, by the fields of the read schema and nested schemas
+   private final Map<StructField, QuickbooksStringDictionary> dictionaries =
+      new IdentityHashMap<>();
+   private QuickbooksScanMetrics scanMetrics;
+   private String companyId;
+   private String entity;
+   private long rows;
+   private long fetchNanos;
+   private long convertNanos;
+   private QuickbooksTrace trace;
+   private String traceEntity;
+   private long spanBegin;
+   private long spanNanos;
+   private int spanRows;
 }
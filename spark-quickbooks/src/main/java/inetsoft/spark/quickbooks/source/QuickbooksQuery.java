@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Splits the query option into the entity, fields, condition and sort order of a read, so the
+ * query is counted, paginated and partitioned like any other read of the entity.
+ */
+public class QuickbooksQuery {
+   private QuickbooksQuery() {
+   }
+
+   /**
+    * Apply the query option to the options of a read
+    *
+    * @return the options with the entity, fields, where and orderBy options of the query, or the
+    * options unchanged if they don't have a query
+    */
+   public static QuickbooksDataSourceOptions apply(QuickbooksDataSourceOptions options) {
+      final String query = options.getQuery();
+
+      if(query == null) {
+         return options;
+      }
+
+      final Matcher matcher = QUERY.matcher(query.trim());
+
+      if(!matcher.matches()) {
+         throw new IllegalArgumentException(
+            "Invalid query, expected SELECT <fields> FROM <entity> [WHERE <condition>] " +
+            "[ORDERBY <fields>]: " + query);
+      }
+
+      if(PAGINATION.matcher(query).find()) {
+         throw new IllegalArgumentException(
+            "STARTPOSITION and MAXRESULTS are added to the query when it's paginated: " + query);
+      }
+
+      if(options.isSnapshot()) {
+         throw new IllegalArgumentException("The query option can't be used with snapshot");
+      }
+
+      final String entity = matcher.group(2);
+      // getEntity() defaults to companyInfo, only an entity that was set must match the query
+      final String entityOption = options.getOption("entity");
+
+      if(entityOption != null && !entityOption.equalsIgnoreCase(entity)) {
+         throw new IllegalArgumentException(
+            "The query selects " + entity + " but the entity option is " + entityOption);
+      }
+
+      QuickbooksDataSourceOptions queryOptions = options.withOption("entity", entity);
+      final String fields = matcher.group(1).trim();
+
+      if(!"*".equals(fields)) {
+         for(String field : fields.split(",")) {
+            if(!FIELD.matcher(field.trim()).matches()) {
+               throw new IllegalArgumentException("Invalid query field: " + field.trim());
+            }
+         }
+
+         queryOptions = queryOptions.withOption("fields", fields);
+      }
+
+      if(matcher.group(3) != null) {
+         queryOptions = queryOptions.withOption("where", matcher.group(3).trim());
+      }
+
+      if(matcher.group(4) != null) {
+         queryOptions = queryOptions.withOption("orderBy", matcher.group(4).trim());
+      }
+
+      return queryOptions;
+   }
+
+   /**
+    * Keep the columns of the selected fields, e.g. CustomerRef selects customerRef_value and
+    * customerRef_name, and MetaData.CreateTime selects metaData_createTime or the metaData struct
+    */
+   public static StructType project(StructType structType, List<String> fields) {
+      final List<String> prefixes = fields.stream()
+                                          .map(field -> field.replace('.', '_').toLowerCase())
+                                          .collect(Collectors.toList());
+      return new StructType(Arrays.stream(structType.fields())
+                                  .filter(field -> isSelected(field, prefixes))
+                                  .toArray(StructField[]::new));
+   }
+
+   private static boolean isSelected(StructField field, List<String> prefixes) {
+      final String name = field.name().toLowerCase();
+
+      return prefixes.stream().anyMatch(prefix -> name.equals(prefix) ||
+         name.startsWith(prefix + "_") || prefix.startsWith(name + "_"));
+   }
+
+   private static final Pattern QUERY = Pattern.compile(
+      "SELECT\\s+(.+?)\\s+FROM\\s+(\\w+)(?:\\s+WHERE\\s+(.+?))?(?:\\s+ORDER\\s*BY\\s+(.+?))?\\s*;?",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+   private static final Pattern PAGINATION =
+      Pattern.compile("\\b(STARTPOSITION|MAXRESULTS)\\b", Pattern.CASE_INSENSITIVE);
+   private static final Pattern FIELD = Pattern.compile("[\\w.]+");
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.SparkSchema;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.types.*;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Partition reader over the column values decoded from the JSON query responses. The values are
+ * converted to the types of the schema generated from the SDK entities.
+ */
+public class QuickbooksRawPartitionReader extends QuickbooksPartitionReader {
+   /**
+    * @param checkpoint the checkpoint of the converted chunks of the partition, or null
+    */
+   public QuickbooksRawPartitionReader(QuickbooksStreamReader reader, SparkSchema schema,
+                                       StructType readSchema, QuickbooksCheckpoint checkpoint)
+   {
+      super(QuickbooksPageFetcher.iterator(
+               reader,
+               chunkReader -> chunkReader.getColumns(Arrays.asList(readSchema.fieldNames())),
+               checkpoint),
+            schema, readSchema, QuickbooksStatistics.getEntityKey(reader.getOptions()), checkpoint);
+      this.fields = readSchema.fields();
+   }
+
+   /**
+    * Check if the columns can be decoded from the JSON response. Nested structs and arrays that
+    * aren't flattened are only read from the SDK entities.
+    */
+   public static boolean isSupported(StructType readSchema) {
+      return Arrays.stream(readSchema.fields())
+                   .map(StructField::dataType)
+                   .noneMatch(type -> type instanceof ArrayType || type instanceof MapType ||
+                      type instanceof BinaryType ||
+                      type instanceof StructType && ((StructType) type).nonEmpty());
+   }
+
+   @Override
+   protected InternalRow toRow(Object entity) {
+      final Object[] values = (Object[]) entity;
+      final Object[] cells = new Object[fields.length];
+
+      for(int i = 0; i < fields.length; i++) {
+         cells[i] = values[i] == null ? null : convert(values[i], fields[i]);
+      }
+
+      return new GenericInternalRow(cells);
+   }
+
+   private Object convert(Object value, StructField field) {
+      final DataType type = field.dataType();
+
+      if(type instanceof StringType) {
+         return toUTF8String(value, field);
+      }
+      else if(type instanceof LongType) {
+         return toNumber(value).longValue();
+      }
+      else if(type instanceof DateType) {
+         return (int) parseDate(value.toString()).toEpochDay();
+      }
+      else if(type instanceof TimestampType) {
+         return parseTime(value.toString());
+      }
+      else if(type instanceof IntegerType) {
+         return toNumber(value).intValue();
+      }
+      else if(type instanceof ShortType) {
+         return toNumber(value).shortValue();
+      }
+      else if(type instanceof ByteType) {
+         return toNumber(value).byteValue();
+      }
+      else if(type instanceof DoubleType) {
+         return toNumber(value).doubleValue();
+      }
+      else if(type instanceof FloatType) {
+         return toNumber(value).floatValue();
+      }
+      else if(type instanceof DecimalType) {
+         final BigDecimal amount =
+            value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+         return toDecimal(amount, field);
+      }
+      else if(type instanceof BooleanType) {
+         return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+      }
+
+      // structs without any properties in the schema sample
+      return null;
+   }
+
+   private static Number toNumber(Object value) {
+      return value instanceof Number ? (Number) value : new BigDecimal(value.toString());
+   }
+
+   /**
+    * @return the microseconds of a date time, dates without a time are midnight in
+    *         DATE_ONLY_TIME_ZONE
+    */
+   private static long parseTime(String value) {
+      final Instant instant = value.length() == DATE_LENGTH ?
+         LocalDate.parse(value).atStartOfDay(DATE_ONLY_TIME_ZONE).toInstant() :
+         OffsetDateTime.parse(value).toInstant();
+      return instant.getEpochSecond() * 1000000L + instant.getNano() / 1000;
+   }
+
+   private static LocalDate parseDate(String value) {
+      if(value.length() == DATE_LENGTH) {
+         return LocalDate.parse(value);
+      }
+
+      // the date of a date time in its own offset, as QuickBooks shows it
+      return OffsetDateTime.parse(value).toLocalDate();
+   }
+
+   private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+   // the SDK parses dates without a time at midnight in the default zone, timestamp columns of
+   // such values match the SDK reader
+   private static final ZoneId DATE_ONLY_TIME_ZONE = ZoneId.systemDefault();
+   private final StructField[] fields;
+}
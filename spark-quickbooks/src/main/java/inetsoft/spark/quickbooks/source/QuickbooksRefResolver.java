@@ -0,0 +1,379 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import inetsoft.spark.quickbooks.SparkSchema;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.types.*;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.Introspector;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Fills columns with attributes of the entities that reference fields point to, e.g. the
+ * display name of the customer of an invoice. The referenced entities of each fetched chunk are
+ * looked up together by ID and their attributes are kept in an executor wide cache, so an entity
+ * referenced by many rows is only fetched once.
+ */
+public class QuickbooksRefResolver {
+   private QuickbooksRefResolver(QuickbooksDataSourceOptions options, List<RefColumn> columns,
+                                 StructType readSchema)
+   {
+      this.options = options;
+      this.columns = columns;
+      this.ordinals = new int[columns.size()];
+      this.added = new boolean[columns.size()];
+      final List<String> names = Arrays.asList(readSchema.fieldNames());
+
+      for(int i = 0; i < ordinals.length; i++) {
+         ordinals[i] = names.indexOf(columns.get(i).name);
+         added[i] = ordinals[i] >= 0 && isResolvedColumn(readSchema.fields()[ordinals[i]]);
+      }
+   }
+
+   /**
+    * @param readSchema the columns of the rows that are read
+    *
+    * @return the resolver of the resolveRefs option, or null if none of the resolved columns are
+    * read
+    */
+   public static QuickbooksRefResolver create(QuickbooksDataSourceOptions options,
+                                              StructType readSchema)
+   {
+      final List<RefColumn> columns = parse(options.getResolveRefs());
+      final Set<String> names = new HashSet<>(Arrays.asList(readSchema.fieldNames()));
+
+      if(columns.stream().noneMatch(column -> names.contains(column.name))) {
+         return null;
+      }
+
+      return new QuickbooksRefResolver(options, columns, readSchema);
+   }
+
+   /**
+    * Add the string columns of the resolved attributes to the schema of an entity, e.g.
+    * customerRef_displayName. A column that the entity already has, e.g. customerRef_name, is
+    * filled with the resolved attribute when it's found.
+    */
+   public static void addColumns(SparkSchema schema, QuickbooksDataSourceOptions options) {
+      StructType structType = schema.getStructType();
+      final Set<String> names = new HashSet<>(Arrays.asList(structType.fieldNames()));
+
+      for(RefColumn column : parse(options.getResolveRefs())) {
+         if(names.add(column.name)) {
+            structType = structType.add(
+               new StructField(column.name, DataTypes.StringType, true, RESOLVED_METADATA));
+         }
+      }
+
+      schema.setStructType(structType);
+   }
+
+   /**
+    * @return true if the column was added for a resolved attribute and isn't read from the entity
+    */
+   public static boolean isResolvedColumn(StructField field) {
+      return field.metadata().contains(RESOLVED_KEY);
+   }
+
+   /**
+    * Load the entities of a reader and look up the referenced entities that aren't cached, so
+    * the rows are resolved from the cache when they are converted
+    */
+   public List<Object> getEntities(QuickbooksStreamReader reader) {
+      final List<Object> entities = reader.getEntities();
+      final Map<String, Set<String>> missing = new HashMap<>();
+
+      for(Object entity : entities) {
+         for(int i = 0; i < ordinals.length; i++) {
+            final RefColumn column = columns.get(i);
+            final String id = ordinals[i] < 0 ? null : getRefId(entity, column);
+
+            if(id != null && getCached(getKey(column, id)) == null) {
+               missing.computeIfAbsent(column.entity, key -> new LinkedHashSet<>()).add(id);
+            }
+         }
+      }
+
+      for(Map.Entry<String, Set<String>> entry : missing.entrySet()) {
+         lookUp(entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+
+      return entities;
+   }
+
+   /**
+    * Set the resolved attributes of an entity in its row. Referenced entities that are no
+    * longer cached are looked up one at a time.
+    */
+   public void resolve(Object entity, InternalRow row) {
+      for(int i = 0; i < ordinals.length; i++) {
+         if(ordinals[i] < 0) {
+            continue;
+         }
+
+         final RefColumn column = columns.get(i);
+         final String id = getRefId(entity, column);
+         String value = null;
+
+         if(id != null) {
+            final String key = getKey(column, id);
+            CachedValue cached = getCached(key);
+
+            if(cached == null) {
+               lookUp(column.entity, Collections.singletonList(id));
+               cached = getCached(key);
+            }
+
+            value = cached == null ? null : cached.value;
+         }
+
+         // unresolved references keep the value of a column the entity has
+         if(value != null || added[i]) {
+            row.update(ordinals[i], value == null ? null : UTF8String.fromString(value));
+         }
+      }
+   }
+
+   /**
+    * Query the referenced entities by ID and cache the resolved attributes. IDs that aren't
+    * found, e.g. of deleted entities, are cached as unresolved so they aren't queried again.
+    */
+   private void lookUp(String entity, List<String> ids) {
+      final QuickbooksDataSourceOptions lookupOptions = options
+         .withOption("entity", entity)
+         .withOption("ids", String.join(",", ids))
+         .withOption("where", ACTIVE_ENTITIES.contains(entity) ? "Active IN (true, false)" : null)
+         .withOption("orderBy", null)
+         .withOption("startPosition", "1")
+         .withOption("maxResults", "0");
+      final List<Object> referenced = new QuickbooksStreamReader(lookupOptions).getEntities();
+      final List<RefColumn> entityColumns = columns.stream()
+                                                   .filter(column -> column.entity.equals(entity))
+                                                   .collect(Collectors.toList());
+      final Map<String, String> values = new HashMap<>();
+      final Set<String> unresolved = new HashSet<>(ids);
+
+      for(Object object : referenced) {
+         final String id = toString(invoke(object, "Id"));
+         unresolved.remove(id);
+
+         for(RefColumn column : entityColumns) {
+            Object value = object;
+
+            for(String property : column.attribute) {
+               value = invoke(value, property);
+            }
+
+            values.put(getKey(column, id), toString(value));
+         }
+      }
+
+      for(String id : unresolved) {
+         for(RefColumn column : entityColumns) {
+            values.put(getKey(column, id), null);
+         }
+      }
+
+      LOG.debug("Resolved {} of {} {} reference(s)", ids.size() - unresolved.size(), ids.size(),
+                entity);
+      putCached(values, System.currentTimeMillis() + options.getResolveCacheSeconds() * 1000L,
+                options.getResolveCacheSize());
+   }
+
+   private String getRefId(Object entity, RefColumn column) {
+      return toString(invoke(invoke(entity, column.refField), "Value"));
+   }
+
+   private String getKey(RefColumn column, String id) {
+      return String.join("|", options.getCompanyId(), String.valueOf(options.isProduction()),
+                         column.entity, id, column.name);
+   }
+
+   /**
+    * Call the getter of a property of an SDK object
+    *
+    * @return the value of the property, or null if the object doesn't have the property
+    */
+   private Object invoke(Object bean, String property) {
+      if(bean == null) {
+         return null;
+      }
+
+      final Optional<Method> method = methods.computeIfAbsent(
+         bean.getClass().getName() + "." + property, key -> findGetter(bean.getClass(), property));
+
+      try {
+         return method.isPresent() ? method.get().invoke(bean) : null;
+      }
+      catch(IllegalAccessException | InvocationTargetException e) {
+         LOG.debug("Failed to get {} of {}", property, bean.getClass().getName(), e);
+         return null;
+      }
+   }
+
+   private static Optional<Method> findGetter(Class<?> type, String property) {
+      for(String prefix : new String[]{ "get", "is" }) {
+         try {
+            return Optional.of(type.getMethod(prefix + property));
+         }
+         catch(NoSuchMethodException e) {
+            // try the next prefix
+         }
+      }
+
+      LOG.debug("{} doesn't have a {} property", type.getName(), property);
+      return Optional.empty();
+   }
+
+   /**
+    * Convert an attribute to its column value, references and other SDK objects are converted
+    * to their value
+    */
+   private String toString(Object value) {
+      if(value == null) {
+         return null;
+      }
+      else if(value instanceof Date) {
+         return Instant.ofEpochMilli(((Date) value).getTime()).toString();
+      }
+      else if(value instanceof String || value instanceof Number || value instanceof Boolean ||
+         value instanceof Enum)
+      {
+         return value.toString();
+      }
+
+      return toString(invoke(value, "Value"));
+   }
+
+   private static List<RefColumn> parse(List<String> refs) {
+      final List<RefColumn> columns = new ArrayList<>();
+
+      for(String ref : refs) {
+         final String[] tokens = ref.split("\\.");
+
+         if(tokens.length < 2 || !tokens[0].endsWith("Ref") || tokens[0].length() == 3) {
+            throw new IllegalArgumentException(
+               "Invalid resolveRefs entry, expected a reference field and attribute such as " +
+               "CustomerRef.DisplayName: " + ref);
+         }
+
+         columns.add(new RefColumn(tokens[0], Arrays.copyOfRange(tokens, 1, tokens.length)));
+      }
+
+      return columns;
+   }
+
+   private static synchronized CachedValue getCached(String key) {
+      final CachedValue cached = cache.get(key);
+
+      if(cached != null && cached.expiration < System.currentTimeMillis()) {
+         cache.remove(key);
+         return null;
+      }
+
+      return cached;
+   }
+
+   private static synchronized void putCached(Map<String, String> values, long expiration,
+                                              int maxSize)
+   {
+      for(Map.Entry<String, String> entry : values.entrySet()) {
+         cache.put(entry.getKey(), new CachedValue(entry.getValue(), expiration));
+      }
+
+      final Iterator<String> iterator = cache.keySet().iterator();
+
+      while(cache.size() > maxSize && iterator.hasNext()) {
+         iterator.next();
+         iterator.remove();
+      }
+   }
+
+   private static final class RefColumn {
+      RefColumn(String refField, String[] attribute) {
+         this.refField = refField;
+         this.attribute = attribute;
+         this.entity = getEntity(refField.substring(0, refField.length() - 3));
+         this.name = Arrays.stream(attribute)
+                           .map(Introspector::decapitalize)
+                           .collect(Collectors.joining("_", Introspector.decapitalize(refField) +
+                              "_", ""));
+      }
+
+      /**
+       * Get the entity a reference points to, e.g. ARAccountRef points to an Account
+       */
+      private static String getEntity(String name) {
+         if(name.endsWith("Account")) {
+            return "Account";
+         }
+         else if(name.endsWith("TaxCode")) {
+            return "TaxCode";
+         }
+         else if(name.endsWith("Term")) {
+            return "Term";
+         }
+
+         return name;
+      }
+
+      private final String refField;
+      private final String[] attribute;
+      private final String entity;
+      private final String name;
+   }
+
+   private static final class CachedValue {
+      CachedValue(String value, long expiration) {
+         this.value = value;
+         this.expiration = expiration;
+      }
+
+      private final String value;
+      private final long expiration;
+   }
+
+   private static final String RESOLVED_KEY = "resolvedRef";
+   private static final Metadata RESOLVED_METADATA =
+      new MetadataBuilder().putBoolean(RESOLVED_KEY, true).build();
+   // name list entities that queries only return when active unless asked for inactive ones
+   private static final Set<String> ACTIVE_ENTITIES = new HashSet<>(Arrays.asList(
+      "Account", "Class", "Customer", "Department", "Employee", "Item", "PaymentMethod",
+      "TaxCode", "Term", "Vendor"));
+   // access ordered so iteration starts at the least recently used value
+   private static final LinkedHashMap<String, CachedValue> cache =
+      new LinkedHashMap<>(16, 0.75f, true);
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final QuickbooksDataSourceOptions options;
+   private final List<RefColumn> columns;
+   // the position of each resolved column in the read schema, -1 if it isn't read
+   private final int[] ordinals;
+   // true for columns added for the resolved attributes rather than read from the entity
+   private final boolean[] added;
+   // getters of the SDK classes, which are loaded by a new class loader for each request
+   private final Map<String, Optional<Method>> methods = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksAPI;
+import inetsoft.spark.quickbooks.SparkSchemaGenerator;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.connector.read.PartitionReader;
+import org.apache.spark.sql.types.*;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the flattened rows of a report. The report cells are converted straight to the column
+ * types without going through an entity object.
+ */
+public class QuickbooksReportPartitionReader implements PartitionReader<InternalRow> {
+   public QuickbooksReportPartitionReader(QuickbooksStreamReader reader, StructType structType) {
+      final QuickbooksAPI.QuickbooksReportResult report = reader.getReport();
+      this.rowsIter = report.getRows().iterator();
+      this.fields = structType.fields();
+      this.columns = getColumns(report.getColumnNames(), fields);
+   }
+
+   /**
+    * Map the fields of the schema to the columns of a report slice by name. A slice can lack
+    * columns of the schema, e.g. months outside of the slice, which are null. Columns that aren't
+    * in the schema would be lost, so they fail the read.
+    *
+    * @return the index of the column of each field, or -1 if the slice doesn't have the column
+    */
+   private static int[] getColumns(List<String> columnNames, StructField[] fields) {
+      final Set<String> fieldNames =
+         Arrays.stream(fields).map(StructField::name).collect(Collectors.toSet());
+      final List<String> unknown = columnNames.stream()
+                                              .filter(name -> !fieldNames.contains(name))
+                                              .collect(Collectors.toList());
+
+      if(!unknown.isEmpty()) {
+         throw new IllegalStateException(
+            "The report columns " + unknown + " aren't in the report schema " + fieldNames +
+            ", the columns depend on the report period");
+      }
+
+      return Arrays.stream(fields).mapToInt(field -> columnNames.indexOf(field.name())).toArray();
+   }
+
+   /**
+    * Create the struct type of a report from the column names and types of the response
+    */
+   public static StructType createStructType(QuickbooksAPI.QuickbooksReportResult report) {
+      final List<String> columnNames = report.getColumnNames();
+      final List<String> columnTypes = report.getColumnTypes();
+      StructType structType = new StructType();
+
+      for(int i = 0; i < columnNames.size(); i++) {
+         structType = structType.add(columnNames.get(i), getDataType(columnTypes.get(i)), true);
+      }
+
+      return structType;
+   }
+
+   @Override
+   public boolean next() {
+      currRow = rowsIter.hasNext() ? rowsIter.next() : null;
+      return currRow != null;
+   }
+
+   @Override
+   public InternalRow get() {
+      final Object[] cells = new Object[fields.length];
+
+      for(int i = 0; i < fields.length; i++) {
+         final int column = columns[i];
+
+         if(column >= 0 && column < currRow.length) {
+            cells[i] = convertCell(currRow[column], fields[i]);
+         }
+      }
+
+      return new GenericInternalRow(cells);
+   }
+
+   @Override
+   public void close() {
+   }
+
+   private Object convertCell(String value, StructField field) {
+      if(value == null) {
+         return null;
+      }
+
+      final DataType type = field.dataType();
+
+      try {
+         if(type instanceof DecimalType) {
+            return QuickbooksPartitionReader.toDecimal(new BigDecimal(value), field);
+         }
+         else if(type == DataTypes.DateType) {
+            return (int) LocalDate.parse(value).toEpochDay();
+         }
+         else if(type == DataTypes.IntegerType) {
+            return Integer.parseInt(value);
+         }
+      }
+      catch(RuntimeException e) {
+         LOG.debug("Failed to convert report value {} to {}, using null", value, type);
+         return null;
+      }
+
+      return UTF8String.fromString(value);
+   }
+
+   private static DataType getDataType(String columnType) {
+      switch(columnType) {
+         case "Money":
+            return SparkSchemaGenerator.DECIMAL_TYPE;
+         case "Date":
+            return DataTypes.DateType;
+         case "Integer":
+            return DataTypes.IntegerType;
+         default:
+            return DataTypes.StringType;
+      }
+   }
+
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final Iterator<String[]> rowsIter;
+   private final StructField[] fields;
+   private final int[] columns;
+   private String[] currRow;
+}
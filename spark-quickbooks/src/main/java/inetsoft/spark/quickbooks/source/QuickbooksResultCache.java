@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * JVM wide cache of converted rows so repeated actions on the same data frame don't fetch the
+ * entity again. Rows are stored in the binary row format, the cache is bounded by the total
+ * size of the rows and evicts the least recently used results first.
+ */
+public class QuickbooksResultCache {
+   private QuickbooksResultCache() {
+   }
+
+   /**
+    * Get the key of the rows read by a scan
+    */
+   public static String getKey(QuickbooksDataSourceOptions options, StructType readSchema) {
+      return String.join("|", getSourceKey(options), String.valueOf(options.isProduction()),
+                         options.getEntity(), String.valueOf(options.getWhere()),
+                         String.valueOf(options.getOrderBy()), String.join(",", options.getIds()),
+                         String.join(",", options.getFields()),
+                         String.valueOf(options.getStartPosition()),
+                         String.valueOf(options.getMaxResults()),
+                         String.valueOf(options.isExpandStructs()),
+                         String.valueOf(options.isExpandArrays()),
+                         String.valueOf(options.isRawJson()),
+                         String.join(",", options.getResolveRefs()), readSchema.catalogString());
+   }
+
+   /**
+    * Get the key of the API and credentials a company is read with, so reads of the same company
+    * from another server, e.g. a mock server, or with other credentials don't share rows. The
+    * access token is hashed to keep it out of the logged keys.
+    */
+   public static String getSourceKey(QuickbooksDataSourceOptions options) {
+      final String credentials = options.getClientId() != null ?
+         options.getClientId() : hash(options.getAccessToken());
+      return String.join("|", options.getCompanyId(), String.valueOf(options.getBaseUrl()),
+                         credentials);
+   }
+
+   private static String hash(String value) {
+      if(value == null) {
+         return "null";
+      }
+
+      try {
+         final byte[] digest = MessageDigest.getInstance("SHA-256")
+            .digest(value.getBytes(StandardCharsets.UTF_8));
+         return new BigInteger(1, digest).toString(16);
+      }
+      catch(NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * @return the cached rows or null if they are not cached or have expired
+    */
+   public static synchronized InternalRow[] get(String key) {
+      final CachedResult result = results.get(key);
+
+      if(result == null) {
+         return null;
+      }
+
+      if(result.expiration < System.currentTimeMillis()) {
+         remove(key);
+         return null;
+      }
+
+      LOG.debug("Using {} cached row(s) of {}", result.rows.length, key);
+      return result.rows;
+   }
+
+   /**
+    * Cache the rows of a scan, evicting the least recently used results until the cache fits
+    * in maxBytes
+    *
+    * @param rows  rows in the binary row format
+    * @param bytes the total size of the rows
+    */
+   public static synchronized void put(String key, InternalRow[] rows, long bytes, long ttlMillis,
+                                       long maxBytes)
+   {
+      if(bytes > maxBytes) {
+         return;
+      }
+
+      remove(key);
+      final Iterator<Map.Entry<String, CachedResult>> iterator = results.entrySet().iterator();
+
+      while(totalBytes + bytes > maxBytes && iterator.hasNext()) {
+         totalBytes -= iterator.next().getValue().bytes;
+         iterator.remove();
+      }
+
+      results.put(key, new CachedResult(rows, bytes, System.currentTimeMillis() + ttlMillis));
+      totalBytes += bytes;
+   }
+
+   private static void remove(String key) {
+      final CachedResult removed = results.remove(key);
+
+      if(removed != null) {
+         totalBytes -= removed.bytes;
+      }
+   }
+
+   private static final class CachedResult {
+      CachedResult(InternalRow[] rows, long bytes, long expiration) {
+         this.rows = rows;
+         this.bytes = bytes;
+         this.expiration = expiration;
+      }
+
+      private final InternalRow[] rows;
+      private final long bytes;
+      private final long expiration;
+   }
+
+   // access ordered so iteration starts at the least recently used result
+   private static final LinkedHashMap<String, CachedResult> results =
+      new LinkedHashMap<>(16, 0.75f, true);
+   private static long totalBytes;
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+}
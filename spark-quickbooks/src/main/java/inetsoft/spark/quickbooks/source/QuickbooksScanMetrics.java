@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.SparkContext;
+import org.apache.spark.util.LongAccumulator;
+
+import java.io.Serializable;
+
+/**
+ * Totals of the partitions of a scan, collected in accumulators that are shown with the stage
+ * in the Spark UI and can be read on the driver once the scan has run
+ */
+public class QuickbooksScanMetrics implements Serializable {
+   public QuickbooksScanMetrics(SparkContext context, String table) {
+      this.rows = context.longAccumulator("QuickBooks " + table + " rows");
+      this.fetchMillis = context.longAccumulator("QuickBooks " + table + " fetch wait (ms)");
+      this.convertMillis = context.longAccumulator("QuickBooks " + table + " conversion (ms)");
+   }
+
+   /**
+    * Add the totals of a partition
+    */
+   public void add(long rows, long fetchNanos, long convertNanos) {
+      this.rows.add(rows);
+      this.fetchMillis.add(fetchNanos / 1000000);
+      this.convertMillis.add(convertNanos / 1000000);
+   }
+
+   public long getRows() {
+      return rows.value();
+   }
+
+   public long getFetchMillis() {
+      return fetchMillis.value();
+   }
+
+   public long getConvertMillis() {
+      return convertMillis.value();
+   }
+
+   private final LongAccumulator rows;
+   private final LongAccumulator fetchMillis;
+   private final LongAccumulator convertMillis;
+}
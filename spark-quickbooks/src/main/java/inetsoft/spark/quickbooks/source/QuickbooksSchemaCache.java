@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import inetsoft.spark.quickbooks.SparkSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * JVM wide cache of the sampled schemas of entities, so tables of the same entity don't sample
+ * it again for schemaCacheSeconds. The schemas of several entities can be sampled together in
+ * one batch request.
+ */
+public class QuickbooksSchemaCache {
+   private QuickbooksSchemaCache() {
+   }
+
+   /**
+    * Get the schema of the entity of a reader, sampling the entity if it isn't cached
+    *
+    * @return a copy of the schema that can be changed by the caller
+    */
+   public static SparkSchema getSchema(QuickbooksStreamReader reader) {
+      final QuickbooksDataSourceOptions options = reader.getOptions();
+
+      if(options.getSchemaCacheSeconds() <= 0) {
+         return reader.getSchema();
+      }
+
+      final String key = getKey(options, options.getEntity());
+      final CachedSchema cached = get(key);
+
+      if(cached != null) {
+         return cached.schema.copy();
+      }
+
+      final SparkSchema schema = reader.getSchema();
+      put(key, schema, options);
+      return schema.copy();
+   }
+
+   /**
+    * Sample the entities that aren't cached in one batch request and cache their schemas
+    *
+    * @param options  the options of the company the entities belong to
+    * @param entities the names of the entities
+    */
+   public static void load(QuickbooksDataSourceOptions options, List<String> entities) {
+      final List<String> missing = entities.stream()
+                                           .filter(entity -> get(getKey(options, entity)) == null)
+                                           .collect(Collectors.toList());
+
+      if(missing.isEmpty()) {
+         return;
+      }
+
+      final QuickbooksStreamReader reader = new QuickbooksStreamReader(
+         options.withOption("entities", String.join(",", missing)));
+      final Map<String, SparkSchema> schemas = reader.getSchemasByName();
+      schemas.forEach((entity, schema) -> put(getKey(options, entity), schema, options));
+      LOG.debug("Cached the schemas of {} QuickBooks entities of {}", schemas.size(),
+                options.getCompanyId());
+   }
+
+   /**
+    * Remove the cached schema of an entity
+    */
+   public static void invalidate(QuickbooksDataSourceOptions options, String entity) {
+      schemas.remove(getKey(options, entity));
+   }
+
+   private static CachedSchema get(String key) {
+      final CachedSchema cached = schemas.get(key);
+
+      if(cached != null && cached.expiration < System.currentTimeMillis()) {
+         schemas.remove(key, cached);
+         return null;
+      }
+
+      return cached;
+   }
+
+   private static void put(String key, SparkSchema schema, QuickbooksDataSourceOptions options) {
+      final long expiration =
+         System.currentTimeMillis() + options.getSchemaCacheSeconds() * 1000L;
+      schemas.put(key, new CachedSchema(schema, expiration));
+   }
+
+   /**
+    * @return the key of the options that determine the schema of an entity
+    */
+   private static String getKey(QuickbooksDataSourceOptions options, String entity) {
+      return String.join("|", QuickbooksResultCache.getSourceKey(options),
+                         String.valueOf(options.isProduction()), entity,
+                         String.valueOf(options.isExpandStructs()),
+                         String.valueOf(options.isExpandArrays()));
+   }
+
+   private static final class CachedSchema {
+      CachedSchema(SparkSchema schema, long expiration) {
+         this.schema = schema;
+         this.expiration = expiration;
+      }
+
+      private final SparkSchema schema;
+      private final long expiration;
+   }
+
+   private static final Map<String, CachedSchema> schemas = new ConcurrentHashMap<>();
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.*;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.catalyst.expressions.UnsafeProjection;
+import org.apache.spark.sql.connector.read.PartitionReader;
+import org.apache.spark.sql.execution.arrow.ArrowWriter;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.sql.util.ArrowUtils;
+import org.apache.spark.sql.vectorized.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Local snapshots of entities stored as LZ4 compressed Arrow IPC streams in the QuickBooks lib
+ * directory. A snapshot records the latest MetaData.LastUpdatedTime of its entities in the
+ * schema metadata of the stream. Later reads fetch only the entities updated since then, merge
+ * them in by Id while the snapshot is rewritten batch by batch, and stream the rows from the new
+ * snapshot, so the rows are never all held in memory. Entities deleted in QuickBooks stay in the
+ * snapshot until it is removed.
+ */
+public class QuickbooksSnapshotStore {
+   public QuickbooksSnapshotStore(QuickbooksDataSourceOptions options, SparkSchema schema) {
+      this.schema = schema;
+      this.structType = schema.getStructType();
+      final File dir = new File(new File(QuickbooksUtil.getQbLibDir(), "snapshots"),
+                                options.getCompanyId() + (options.isProduction() ? "" : "-sandbox"));
+      this.dataFile = new File(dir, options.getEntity() + ".arrows.lz4");
+   }
+
+   /**
+    * Read the entity, refreshing the snapshot with the entities updated since it was taken
+    *
+    * @param readSchema the columns of the full schema that are read
+    *
+    * @return a reader of the rows of every entity
+    */
+   public PartitionReader<InternalRow> read(QuickbooksStreamReader reader, StructType readSchema) {
+      final Long highWaterMark = loadHighWaterMark();
+
+      if(highWaterMark == null) {
+         final List<Object> entities = reader.getEntities();
+
+         try {
+            // the first snapshot is written while the entities are converted
+            save(convert(entities), null, getHighWaterMark(-1, entities));
+            return new SnapshotPartitionReader(new SnapshotRows(), readSchema);
+         }
+         catch(IOException | RuntimeException e) {
+            LOG.warn("Failed to save snapshot {}, reading the entities without it", dataFile, e);
+            return new SnapshotPartitionReader(convert(entities), null, readSchema);
+         }
+      }
+
+      // QuickBooks compares times in seconds, updates in the same second are merged by Id
+      final String where = "MetaData.LastUpdatedTime >= '" + DATE_TIME_FORMAT.format(
+         Instant.ofEpochMilli(highWaterMark).atOffset(ZoneOffset.UTC)) + "'";
+      final List<Object> entities =
+         new QuickbooksStreamReader(reader.getOptions().withOption("where", where)).getEntities();
+      LOG.debug("Merging {} updated entities into snapshot {}", entities.size(), dataFile);
+      final List<InternalRow> updates = new ArrayList<>(entities.size());
+      convert(entities).forEachRemaining(updates::add);
+
+      try {
+         if(!updates.isEmpty()) {
+            final SnapshotRows rows = new SnapshotRows();
+            save(merge(rows, updates), rows, getHighWaterMark(highWaterMark, entities));
+         }
+
+         return new SnapshotPartitionReader(new SnapshotRows(), readSchema);
+      }
+      catch(IOException | RuntimeException e) {
+         LOG.warn("Failed to save snapshot {}, merging the updates without it", dataFile, e);
+      }
+
+      try {
+         final SnapshotRows rows = new SnapshotRows();
+         return new SnapshotPartitionReader(merge(rows, updates), rows, readSchema);
+      }
+      catch(IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Convert the fetched entities to rows of the full schema as they are read
+    */
+   private Iterator<InternalRow> convert(List<Object> entities) {
+      final QuickbooksPartitionReader converter =
+         new QuickbooksPartitionReader(entities.iterator(), schema);
+
+      return new Iterator<InternalRow>() {
+         @Override
+         public boolean hasNext() {
+            while(next == null && converter.next()) {
+               next = converter.get();
+            }
+
+            return next != null;
+         }
+
+         @Override
+         public InternalRow next() {
+            if(!hasNext()) {
+               throw new NoSuchElementException();
+            }
+
+            final InternalRow row = next;
+            next = null;
+            return row;
+         }
+
+         private InternalRow next;
+      };
+   }
+
+   private static long getHighWaterMark(long highWaterMark, List<Object> entities) {
+      for(Object entity : entities) {
+         highWaterMark = Math.max(highWaterMark, getLastUpdatedTime(entity));
+      }
+
+      return highWaterMark;
+   }
+
+   /**
+    * @return the rows of the snapshot that weren't updated, followed by the updated rows
+    */
+   private Iterator<InternalRow> merge(Iterator<InternalRow> rows, List<InternalRow> updates) {
+      final int idIndex = structType.fieldIndex("id");
+      final Set<String> updatedIds = new HashSet<>();
+
+      for(InternalRow update : updates) {
+         updatedIds.add(update.getUTF8String(idIndex).toString());
+      }
+
+      final Iterator<InternalRow> updateIterator = updates.iterator();
+
+      return new Iterator<InternalRow>() {
+         @Override
+         public boolean hasNext() {
+            while(next == null && rows.hasNext()) {
+               final InternalRow row = rows.next();
+
+               if(!updatedIds.contains(row.getUTF8String(idIndex).toString())) {
+                  next = row;
+               }
+            }
+
+            return next != null || updateIterator.hasNext();
+         }
+
+         @Override
+         public InternalRow next() {
+            if(!hasNext()) {
+               throw new NoSuchElementException();
+            }
+
+            if(next != null) {
+               final InternalRow row = next;
+               next = null;
+               return row;
+            }
+
+            return updateIterator.next();
+         }
+
+         private InternalRow next;
+      };
+   }
+
+   /**
+    * @return the high water mark of the snapshot, or null if there's no snapshot of the current
+    * schema
+    */
+   private Long loadHighWaterMark() {
+      if(!dataFile.exists()) {
+         return null;
+      }
+
+      try(SnapshotRows rows = new SnapshotRows()) {
+         final Map<String, String> metadata = rows.getMetadata();
+
+         // the snapshot can't be used if the entity schema has changed
+         if(!structType.catalogString().equals(metadata.get(SCHEMA))) {
+            LOG.debug("Schema of snapshot {} has changed, reading all entities", dataFile);
+            return null;
+         }
+
+         return Long.parseLong(metadata.get(HIGH_WATER_MARK));
+      }
+      catch(IOException | RuntimeException e) {
+         LOG.warn("Failed to read snapshot {}, reading all entities", dataFile, e);
+         return null;
+      }
+   }
+
+   /**
+    * Write the snapshot to a temporary file of this writer and move it over the snapshot, so
+    * concurrent writers don't corrupt the snapshot and the last complete one is kept
+    *
+    * @param resource the resource of the rows to close when they are written, or null
+    */
+   private void save(Iterator<InternalRow> rows, Closeable resource, long highWaterMark)
+      throws IOException
+   {
+      final File dir = dataFile.getParentFile();
+
+      if(!dir.isDirectory() && !dir.mkdirs()) {
+         throw new IOException("Failed to create snapshot directory " + dir);
+      }
+
+      final Path tempFile = Files.createTempFile(dir.toPath(), dataFile.getName(), ".tmp");
+      final Map<String, String> metadata = new HashMap<>();
+      metadata.put(HIGH_WATER_MARK, String.valueOf(highWaterMark));
+      metadata.put(SCHEMA, structType.catalogString());
+      final Schema arrowSchema = new Schema(
+         ArrowUtils.toArrowSchema(structType, "UTC").getFields(), metadata);
+      int count = 0;
+
+      try {
+         try(Closeable rowsResource = resource;
+             BufferAllocator allocator = createAllocator();
+             VectorSchemaRoot root = VectorSchemaRoot.create(arrowSchema, allocator);
+             OutputStream out = new LZ4BlockOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile)));
+             ArrowStreamWriter writer = new ArrowStreamWriter(root, null, out))
+         {
+            final ArrowWriter arrowWriter = ArrowWriter.create(root);
+            writer.start();
+            int batchRows = 0;
+
+            while(rows.hasNext()) {
+               arrowWriter.write(rows.next());
+               count++;
+
+               if(++batchRows == BATCH_ROWS) {
+                  arrowWriter.finish();
+                  writer.writeBatch();
+                  arrowWriter.reset();
+                  batchRows = 0;
+               }
+            }
+
+            if(batchRows > 0 || count == 0) {
+               arrowWriter.finish();
+               writer.writeBatch();
+            }
+
+            writer.end();
+         }
+
+         Files.move(tempFile, dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally {
+         Files.deleteIfExists(tempFile);
+      }
+
+      LOG.debug("Saved {} row(s) to snapshot {}", count, dataFile);
+   }
+
+   private BufferAllocator createAllocator() {
+      return ArrowUtils.rootAllocator().newChildAllocator("quickbooks-snapshot", 0, Long.MAX_VALUE);
+   }
+
+   /**
+    * @return the MetaData.LastUpdatedTime of an entity in epoch milliseconds, or -1 if it has none
+    */
+   private static long getLastUpdatedTime(Object entity) {
+      try {
+         final Method getMetaData = entity.getClass().getMethod("getMetaData");
+         final Object metaData = getMetaData.invoke(entity);
+
+         if(metaData != null) {
+            final Object time = metaData.getClass().getMethod("getLastUpdatedTime").invoke(metaData);
+
+            if(time instanceof Date) {
+               return ((Date) time).getTime();
+            }
+         }
+      }
+      catch(ReflectiveOperationException e) {
+         LOG.debug("Entity has no last updated time", e);
+      }
+
+      return -1;
+   }
+
+   /**
+    * Rows of the snapshot file, read one batch at a time. The rows are backed by the vectors of
+    * the batch and are only valid until the next row is read.
+    */
+   private final class SnapshotRows implements Iterator<InternalRow>, Closeable {
+      SnapshotRows() throws IOException {
+         this.allocator = createAllocator();
+
+         try {
+            this.reader = new ArrowStreamReader(new LZ4BlockInputStream(
+               new BufferedInputStream(new FileInputStream(dataFile))), allocator);
+            this.root = reader.getVectorSchemaRoot();
+            this.batch = new ColumnarBatch(root.getFieldVectors().stream()
+                                               .map(ArrowColumnVector::new)
+                                               .toArray(ColumnVector[]::new));
+         }
+         catch(IOException | RuntimeException e) {
+            close();
+            throw e;
+         }
+      }
+
+      Map<String, String> getMetadata() {
+         return root.getSchema().getCustomMetadata();
+      }
+
+      @Override
+      public boolean hasNext() {
+         try {
+            // the vectors of the root are reloaded with each batch
+            while(batchRows == null || !batchRows.hasNext()) {
+               if(!reader.loadNextBatch()) {
+                  return false;
+               }
+
+               batch.setNumRows(root.getRowCount());
+               batchRows = batch.rowIterator();
+            }
+
+            return true;
+         }
+         catch(IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      }
+
+      @Override
+      public InternalRow next() {
+         if(!hasNext()) {
+            throw new NoSuchElementException();
+         }
+
+         return batchRows.next();
+      }
+
+      @Override
+      public void close() throws IOException {
+         try {
+            if(reader != null) {
+               reader.close();
+            }
+         }
+         finally {
+            allocator.close();
+         }
+      }
+
+      private final BufferAllocator allocator;
+      private ArrowStreamReader reader;
+      private VectorSchemaRoot root;
+      private ColumnarBatch batch;
+      private Iterator<InternalRow> batchRows;
+   }
+
+   /**
+    * Projects the rows of the full schema to the read schema
+    */
+   private final class SnapshotPartitionReader implements PartitionReader<InternalRow> {
+      SnapshotPartitionReader(SnapshotRows rows, StructType readSchema) {
+         this(rows, rows, readSchema);
+      }
+
+      /**
+       * @param resource the resource of the rows to close with the reader, or null
+       */
+      SnapshotPartitionReader(Iterator<InternalRow> rows, Closeable resource,
+                              StructType readSchema)
+      {
+         this.rows = rows;
+         this.resource = resource;
+         this.fields = readSchema.fields();
+         this.ordinals = Arrays.stream(fields)
+                               .mapToInt(field -> structType.fieldIndex(field.name()))
+                               .toArray();
+         this.projection = UnsafeProjection.create(readSchema);
+      }
+
+      @Override
+      public boolean next() {
+         if(!rows.hasNext()) {
+            row = null;
+            return false;
+         }
+
+         row = rows.next();
+         return true;
+      }
+
+      /**
+       * Project the current row, which is only valid until the reader is advanced
+       */
+      @Override
+      public InternalRow get() {
+         final Object[] values = new Object[ordinals.length];
+
+         for(int i = 0; i < ordinals.length; i++) {
+            values[i] = row.isNullAt(ordinals[i]) ?
+               null : row.get(ordinals[i], fields[i].dataType());
+         }
+
+         // copies the values out of the vectors of the batch
+         return projection.apply(new GenericInternalRow(values));
+      }
+
+      @Override
+      public void close() throws IOException {
+         if(resource != null) {
+            resource.close();
+         }
+      }
+
+      private final Iterator<InternalRow> rows;
+      private final Closeable resource;
+      private final StructField[] fields;
+      private final int[] ordinals;
+      private final UnsafeProjection projection;
+      private InternalRow row;
+   }
+
+   private static final String HIGH_WATER_MARK = "highWaterMark";
+   private static final String SCHEMA = "schema";
+   private static final int BATCH_ROWS = 10000;
+   private static final DateTimeFormatter DATE_TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final SparkSchema schema;
+   private final StructType structType;
+   private final File dataFile;
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import inetsoft.spark.quickbooks.QuickbooksUtil;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.UnsafeProjection;
+import org.apache.spark.sql.connector.read.Statistics;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table statistics reported to Spark so small entities can be broadcast in joins. The row count
+ * comes from a count query and the size from the average width of the rows that have been
+ * observed for the entity, both are cached per entity. Row widths are also saved in the
+ * QuickBooks lib directory so later runs can plan partitions before reading any rows.
+ */
+public class QuickbooksStatistics implements Statistics {
+   private QuickbooksStatistics(OptionalLong numRows, OptionalLong sizeInBytes) {
+      this.numRows = numRows;
+      this.sizeInBytes = sizeInBytes;
+   }
+
+   @Override
+   public OptionalLong sizeInBytes() {
+      return sizeInBytes;
+   }
+
+   @Override
+   public OptionalLong numRows() {
+      return numRows;
+   }
+
+   /**
+    * Estimate the statistics of the entity read by a reader
+    */
+   public static Statistics estimate(QuickbooksStreamReader reader, StructType schema) {
+      final QuickbooksDataSourceOptions options = reader.getOptions();
+      final double fraction = options.getSampleFraction();
+      long rows = getRowCount(reader);
+
+      if(rows > 0 && fraction > 0 && fraction < 1 && !options.isSnapshot()) {
+         rows = Math.max(1, Math.round(rows * fraction));
+      }
+
+      final String key = getEntityKey(options);
+      return rows < 0 ? unknown() : of(rows, getRowWidth(key, schema));
+   }
+
+   /**
+    * Get the number of entities read by a reader from the cached count. A limited read or an ID
+    * lookup is estimated at its limit or number of IDs without counting.
+    *
+    * @return the number of entities, or -1 if they couldn't be counted
+    */
+   public static long getRowCount(QuickbooksStreamReader reader) {
+      final QuickbooksDataSourceOptions options = reader.getOptions();
+
+      if(options.getMaxResults() > 0) {
+         return options.getMaxResults();
+      }
+
+      if(!options.getIds().isEmpty()) {
+         return options.getIds().size();
+      }
+
+      final String key = getEntityKey(options);
+      final String countKey = options.getWhere() == null ? key : key + ":" + options.getWhere();
+      final long now = System.currentTimeMillis();
+      CachedCount count = rowCounts.get(countKey);
+
+      if(count == null || now - count.timestamp > options.getStatisticsCacheSeconds() * 1000L) {
+         try {
+            count = new CachedCount(reader.getTotalCount(), now);
+            rowCounts.put(countKey, count);
+         }
+         catch(RuntimeException e) {
+            LOG.warn("Failed to count {}, statistics are not available", key, e);
+            return -1;
+         }
+      }
+
+      return count.rows;
+   }
+
+   /**
+    * Create statistics from a known number of rows
+    */
+   public static Statistics of(long numRows, long rowWidth) {
+      return new QuickbooksStatistics(OptionalLong.of(numRows), OptionalLong.of(numRows * rowWidth));
+   }
+
+   public static Statistics unknown() {
+      return new QuickbooksStatistics(OptionalLong.empty(), OptionalLong.empty());
+   }
+
+   /**
+    * @return the average observed width of the rows of an entity, or the default size of the
+    * schema if no rows have been observed
+    */
+   public static long getRowWidth(String entityKey, StructType schema) {
+      final RowWidth width = entityKey == null ? null : getWidth(entityKey);
+      final long average = width == null ? 0 : width.getAverage();
+      return average > 0 ? average : schema.defaultSize();
+   }
+
+   /**
+    * Record the width of a row of an entity, measured as the size of the row in the
+    * binary row format
+    */
+   public static void recordRowWidth(String entityKey, StructType schema, InternalRow row) {
+      if(entityKey == null || row == null) {
+         return;
+      }
+
+      try {
+         recordRowWidth(entityKey, UnsafeProjection.create(schema).apply(row).getSizeInBytes());
+      }
+      catch(RuntimeException e) {
+         LOG.debug("Failed to measure row width of {}", entityKey, e);
+      }
+   }
+
+   public static void recordRowWidth(String entityKey, long bytes) {
+      getWidth(entityKey).add(bytes);
+   }
+
+   /**
+    * Save the observed row width of an entity for later runs
+    */
+   public static void saveRowWidth(String entityKey) {
+      final RowWidth width = getWidth(entityKey);
+
+      synchronized(QuickbooksStatistics.class) {
+         final Properties widths = loadRowWidths();
+         widths.setProperty(entityKey, width.toString());
+         final File file = getRowWidthsFile();
+         final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+         try {
+            try(OutputStream out = new FileOutputStream(tempFile)) {
+               widths.store(out, "QuickBooks row widths");
+            }
+
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+         }
+         catch(IOException e) {
+            LOG.debug("Failed to save row widths", e);
+         }
+      }
+   }
+
+   /**
+    * Get the observed row width of an entity, starting from the width saved by earlier runs
+    */
+   private static RowWidth getWidth(String entityKey) {
+      return rowWidths.computeIfAbsent(entityKey, key -> {
+         synchronized(QuickbooksStatistics.class) {
+            return RowWidth.parse(loadRowWidths().getProperty(key));
+         }
+      });
+   }
+
+   private static Properties loadRowWidths() {
+      final Properties widths = new Properties();
+      final File file = getRowWidthsFile();
+
+      if(file.exists()) {
+         try(InputStream in = new FileInputStream(file)) {
+            widths.load(in);
+         }
+         catch(IOException e) {
+            LOG.debug("Failed to read row widths", e);
+         }
+      }
+
+      return widths;
+   }
+
+   private static File getRowWidthsFile() {
+      return new File(QuickbooksUtil.getQbLibDir(), "row-widths.properties");
+   }
+
+   public static String getEntityKey(QuickbooksDataSourceOptions options) {
+      return options.getCompanyId() + ":" + options.getEntity();
+   }
+
+   private static final class CachedCount {
+      CachedCount(long rows, long timestamp) {
+         this.rows = rows;
+         this.timestamp = timestamp;
+      }
+
+      private final long rows;
+      private final long timestamp;
+   }
+
+   /**
+    * Running average of the row widths, older observations are decayed so the average follows
+    * changes to the entity
+    */
+   private static final class RowWidth {
+      static RowWidth parse(String value) {
+         final RowWidth width = new RowWidth();
+
+         if(value != null) {
+            final String[] parts = value.split(",");
+
+            try {
+               width.bytes = Long.parseLong(parts[0]);
+               width.rows = Long.parseLong(parts[1]);
+            }
+            catch(RuntimeException e) {
+               LOG.debug("Invalid row width {}", value, e);
+               width.bytes = 0;
+               width.rows = 0;
+            }
+         }
+
+         return width;
+      }
+
+      synchronized void add(long rowBytes) {
+         bytes += rowBytes;
+         rows++;
+
+         if(rows > MAX_WIDTH_ROWS) {
+            bytes /= 2;
+            rows /= 2;
+         }
+      }
+
+      synchronized long getAverage() {
+         return rows > 0 ? bytes / rows : 0;
+      }
+
+      @Override
+      public synchronized String toString() {
+         return bytes + "," + rows;
+      }
+
+      private long bytes;
+      private long rows;
+   }
+
+   private static final long MAX_WIDTH_ROWS = 1000;
+   private static final Map<String, CachedCount> rowCounts = new ConcurrentHashMap<>();
+   private static final Map<String, RowWidth> rowWidths = new ConcurrentHashMap<>();
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final OptionalLong numRows;
+   private final OptionalLong sizeInBytes;
+}
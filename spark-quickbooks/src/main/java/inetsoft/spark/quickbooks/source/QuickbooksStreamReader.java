@@ -21,8 +21,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Load the quickbooks runtime and execute a query
@@ -38,28 +38,222 @@ public class QuickbooksStreamReader implements Serializable {
 
    public SparkSchema getSchema() {
       final List<Object> entities = getEntities(true);
+      final SparkSchema schema = createSchema(entities);
+
+      // the schema sample is the first estimate of the row width of the entity
+      if(!entities.isEmpty()) {
+         final QuickbooksPartitionReader sampleReader =
+            new QuickbooksPartitionReader(entities.iterator(), schema);
+
+         if(sampleReader.next()) {
+            QuickbooksStatistics.recordRowWidth(QuickbooksStatistics.getEntityKey(options),
+                                                schema.getStructType(), sampleReader.get());
+         }
+      }
+
+      return schema;
+   }
+
+   /**
+    * Count the entities without loading them
+    */
+   public int getTotalCount() {
+      try {
+         return createAPI().getTotalCount(options);
+      }
+      catch(Exception e) {
+         LOG.error("Failed to execute quickbooks count query", e);
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Load the values of some columns of the entity without creating the SDK entities
+    *
+    * @param columns the flattened column names
+    *
+    * @return the values of each entity in column order
+    */
+   public List<Object[]> getColumns(List<String> columns) {
+      try {
+         return createAPI().loadColumns(options, columns);
+      }
+      catch(Exception e) {
+         LOG.error("Failed to execute quickbooks query", e);
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Load every entity in the entities option in one pass
+    *
+    * @return the loaded objects of each entity keyed by entity name, in request order
+    */
+   public Map<String, List<Object>> getEntitiesByName() {
+      options.setSchemaOnly(false);
+
+      try {
+         final Map<String, QuickbooksAPI.QuickbooksQueryResult> results =
+            createAPI().loadEntities(options);
+         final Map<String, List<Object>> entities = new LinkedHashMap<>();
+         results.forEach((entity, result) ->
+                            entities.put(entity, Collections.unmodifiableList(result.getEntities())));
+         return entities;
+      }
+      catch(Exception e) {
+         LOG.error("Failed to execute quickbooks query", e);
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Sample every entity in the entities option in one pass
+    *
+    * @return the schema of each entity keyed by entity name, in request order
+    */
+   public Map<String, SparkSchema> getSchemasByName() {
+      options.setSchemaOnly(true);
+
+      try {
+         final Map<String, QuickbooksAPI.QuickbooksQueryResult> results =
+            createAPI().loadEntities(options);
+         final Map<String, SparkSchema> schemas = new LinkedHashMap<>();
+         results.forEach((entity, result) ->
+                            schemas.put(entity, createSchema(result.getEntities())));
+         return schemas;
+      }
+      catch(Exception e) {
+         LOG.error("Failed to execute quickbooks query", e);
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Run the report in the report option for the date range of this reader
+    */
+   public QuickbooksAPI.QuickbooksReportResult getReport() {
+      try {
+         return createAPI().loadReport(options);
+      }
+      catch(Exception e) {
+         LOG.error("Failed to execute quickbooks report", e);
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Get the schema of the report option. The report is sampled over the first day of the
+    * period unless its columns are summarized by period, e.g. one column per month, in which
+    * case the whole period is sampled so the schema has the columns of every slice.
+    */
+   public SparkSchema getReportSchema() {
+      QuickbooksDataSourceOptions sampleOptions = options;
+      final String summarizeBy = options.getReportParameters().get("summarize_column_by");
+
+      if(options.getStartDate() != null &&
+         (summarizeBy == null || "Total".equalsIgnoreCase(summarizeBy)))
+      {
+         sampleOptions = options.withOption("endDate", options.getStartDate());
+      }
+
+      final QuickbooksAPI.QuickbooksReportResult report =
+         new QuickbooksStreamReader(sampleOptions).getReport();
+      final SparkSchema sparkSchema = new SparkSchema();
+      sparkSchema.setStructType(QuickbooksReportPartitionReader.createStructType(report));
+      return sparkSchema;
+   }
+
+   /**
+    * Write entities with the write operation of this reader's options
+    */
+   public List<QuickbooksAPI.QuickbooksWriteResult> writeEntities(List<Map<String, Object>> rows) {
+      try {
+         return createAPI().writeEntities(options, rows);
+      }
+      catch(Exception e) {
+         LOG.error("Failed to write quickbooks entities", e);
+         throw new RuntimeException(e);
+      }
+   }
+
+   public QuickbooksDataSourceOptions getOptions() {
+      return options;
+   }
+
+   /**
+    * Generate the schema of the given entities using the flattening options of this reader
+    */
+   public SparkSchema createSchema(List<Object> entities) {
       final SparkSchema sparkSchema = new SparkSchemaGenerator().generateSchema(entities.toArray());
       return options.isExpandStructs() ? sparkSchema.flatten(options.isExpandArrays()) : sparkSchema;
    }
 
    private List<Object> getEntities(boolean schemaOnly) {
       options.setSchemaOnly(schemaOnly);
+      final String key = getFetchKey(schemaOnly);
+      final CompletableFuture<List<Object>> fetch = new CompletableFuture<>();
+      final CompletableFuture<List<Object>> inFlight = IN_FLIGHT.putIfAbsent(key, fetch);
+
+      // an identical query is already running in this JVM, share its result
+      if(inFlight != null) {
+         LOG.debug("Waiting for in-flight quickbooks query {}", key);
+
+         try {
+            return inFlight.join();
+         }
+         catch(CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ?
+               (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+         }
+      }
 
       try {
-         final QuickbooksClassloader classLoader =
-            QuickbooksClassloader.create(getClass().getClassLoader());
-         final Class<?> aClass =
-            classLoader.loadClass("inetsoft.spark.quickbooks.QuickbooksRuntime");
-         final QuickbooksAPI api = (QuickbooksAPI) aClass.newInstance();
-         final QuickbooksAPI.QuickbooksQueryResult result = api.loadData(options);
-         return Collections.unmodifiableList(result.getEntities());
+         final QuickbooksAPI.QuickbooksQueryResult result = createAPI().loadData(options);
+         final List<Object> entities = Collections.unmodifiableList(result.getEntities());
+         fetch.complete(entities);
+         return entities;
       }
       catch(Exception e) {
          LOG.error("Failed to execute quickbooks query", e);
-         throw new RuntimeException(e);
+         final RuntimeException exception = new RuntimeException(e);
+         fetch.completeExceptionally(exception);
+         throw exception;
+      }
+      finally {
+         IN_FLIGHT.remove(key, fetch);
       }
    }
 
+   /**
+    * @return the key of the options that determine the result of a query, including the API
+    * and credentials it's sent with
+    */
+   private String getFetchKey(boolean schemaOnly) {
+      return String.join("|", QuickbooksResultCache.getSourceKey(options),
+                         String.valueOf(options.isProduction()),
+                         options.getEntity(), String.valueOf(options.getWhere()),
+                         String.valueOf(options.getOrderBy()), String.join(",", options.getIds()),
+                         String.join(",", options.getFields()),
+                         String.valueOf(options.getStartPosition()),
+                         String.valueOf(options.getMaxResults()), String.valueOf(schemaOnly));
+   }
+
+   private QuickbooksAPI createAPI() throws Exception {
+      // the runtime reports its requests to the metrics source of this JVM
+      QuickbooksMetricsSource.get();
+      final long begin = QuickbooksTrace.begin();
+      final QuickbooksClassloader classLoader =
+         QuickbooksClassloader.create(getClass().getClassLoader());
+      final Class<?> aClass =
+         classLoader.loadClass("inetsoft.spark.quickbooks.QuickbooksRuntime");
+      final QuickbooksAPI api = (QuickbooksAPI) aClass.newInstance();
+      QuickbooksTrace.end("classloader", options.getCompanyId(), begin);
+      return api;
+   }
+
+   // queries that are running in this JVM, identical queries wait for the running one
+   private static final ConcurrentMap<String, CompletableFuture<List<Object>>> IN_FLIGHT =
+      new ConcurrentHashMap<>();
    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
    private final QuickbooksDataSourceOptions options;
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.unsafe.types.UTF8String;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values of a string or enum column of a partition, so the UTF8String of a value that repeats
+ * across rows, e.g. currencyRef_value or status, is encoded once and shared by the rows. A column
+ * stops keeping its values once it has more than MAX_VALUES distinct values, e.g. names or memos.
+ */
+public class QuickbooksStringDictionary {
+   /**
+    * @return the UTF8String of a string or enum value
+    */
+   public UTF8String get(Object value) {
+      if(values == null) {
+         return UTF8String.fromString(value.toString());
+      }
+
+      UTF8String string = values.get(value);
+
+      if(string == null) {
+         string = UTF8String.fromString(value.toString());
+
+         if(values.size() < MAX_VALUES) {
+            values.put(value, string);
+         }
+         else {
+            values = null;
+         }
+      }
+
+      return string;
+   }
+
+   private static final int MAX_VALUES = 1024;
+   // null when the column has too many distinct values
+   private Map<Object, UTF8String> values = new HashMap<>();
+}
@@ -18,45 +18,207 @@ package inetsoft.spark.quickbooks.source;
 
 import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
 import inetsoft.spark.quickbooks.SparkSchema;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
 import org.apache.spark.sql.connector.catalog.*;
 import org.apache.spark.sql.connector.read.*;
+import org.apache.spark.sql.connector.write.*;
+import org.apache.spark.sql.sources.Filter;
+import org.apache.spark.sql.sources.In;
 import org.apache.spark.sql.types.*;
 import org.apache.spark.sql.util.CaseInsensitiveStringMap;
+import scala.Option;
 
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Collectors;
 
-public class QuickbooksTable implements Table, SupportsRead, Serializable {
+public class QuickbooksTable implements Table, SupportsRead, SupportsWrite, Serializable {
    public QuickbooksTable(QuickbooksDataSourceOptions options, QuickbooksStreamReader reader) {
+      this(options, reader, null);
+   }
+
+   /**
+    * Create a table over rows that were already loaded by a multi-entity read
+    */
+   public QuickbooksTable(QuickbooksDataSourceOptions options, QuickbooksStreamReader reader,
+                          QuickbooksMultiEntityReader.PrefetchedEntity prefetched)
+   {
       this.quickbooksOptions = options;
       this.reader = reader;
+      this.prefetched = prefetched;
+
+      if(prefetched != null) {
+         this.schema = prefetched.getSchema();
+      }
    }
 
    @Override
    public ScanBuilder newScanBuilder(CaseInsensitiveStringMap options) {
-      return QuickbooksInputScan::new;
+      return new QuickbooksScanBuilder();
+   }
+
+   @Override
+   public WriteBuilder newWriteBuilder(LogicalWriteInfo info) {
+      return new WriteBuilder() {
+         @Override
+         public BatchWrite buildForBatch() {
+            return new QuickbooksBatchWrite(quickbooksOptions, info.schema(), info.queryId());
+         }
+      };
    }
 
    @Override
    public String name() {
-      return quickbooksOptions.getCompanyId() + ":" + quickbooksOptions.getEntity();
+      final String report = quickbooksOptions.getReport();
+      return quickbooksOptions.getCompanyId() + ":" +
+         (report != null ? report : quickbooksOptions.getEntity());
    }
 
    @Override
    public StructType schema() {
-      if(schema == null) {
-         schema = reader.getSchema();
-      }
-
-      return schema.getStructType();
+      return loadSchema().getStructType();
    }
 
    @Override
    public Set<TableCapability> capabilities() {
-      return Collections.singleton(TableCapability.BATCH_READ);
+      // rows are written with the columns of the data frame, which don't need to include
+      // every column of the entity
+      return EnumSet.of(TableCapability.BATCH_READ, TableCapability.BATCH_WRITE,
+                        TableCapability.ACCEPT_ANY_SCHEMA);
    }
 
-   public class QuickbooksInputScan implements Scan, Batch, Serializable {
+   /**
+    * Pushes filters down to the query and prunes the columns that are read
+    */
+   public class QuickbooksScanBuilder
+      implements ScanBuilder, SupportsPushDownFilters, SupportsPushDownRequiredColumns
+   {
+      @Override
+      public Filter[] pushFilters(Filter[] filters) {
+         // reports, prefetched rows and snapshots are filtered by spark
+         if(prefetched != null || quickbooksOptions.getReport() != null ||
+            quickbooksOptions.isSnapshot())
+         {
+            return filters;
+         }
+
+         final QuickbooksFilterTranslator translator =
+            new QuickbooksFilterTranslator(quickbooksOptions.getFilterFields());
+         final List<Filter> postScanFilters = new ArrayList<>();
+         final List<Filter> pushed = new ArrayList<>();
+         final List<String> conditions = new ArrayList<>();
+         ids = null;
+
+         for(Filter filter : filters) {
+            // long ID lists, e.g. the keys of a lookup join, are split into batched queries
+            if(ids == null && isIdLookup(filter)) {
+               ids = Arrays.stream(((In) filter).values())
+                           .filter(Objects::nonNull)
+                           .map(String::valueOf)
+                           .collect(Collectors.joining(","));
+               pushed.add(filter);
+               continue;
+            }
+
+            final String condition = translator.translate(filter);
+
+            if(condition == null) {
+               postScanFilters.add(filter);
+            }
+            else {
+               pushed.add(filter);
+               conditions.add(condition);
+
+               // the query only narrows the rows, spark checks them again
+               if(!translator.isExact(filter)) {
+                  postScanFilters.add(filter);
+               }
+            }
+         }
+
+         pushedFilters = pushed.toArray(new Filter[0]);
+         where = conditions.isEmpty() ? null : String.join(" AND ", conditions);
+         return postScanFilters.toArray(new Filter[0]);
+      }
+
+      @Override
+      public Filter[] pushedFilters() {
+         return pushedFilters;
+      }
+
+      private boolean isIdLookup(Filter filter) {
+         return filter instanceof In &&
+            "id".equalsIgnoreCase(((In) filter).attribute().replace("`", "")) &&
+            ((In) filter).values().length > MAX_WHERE_IDS;
+      }
+
+      @Override
+      public void pruneColumns(StructType requiredSchema) {
+         this.requiredSchema = requiredSchema;
+      }
+
+      @Override
+      public Scan build() {
+         final StructType structType = loadSchema().getStructType();
+         StructType readSchema = structType;
+
+         // only top level columns are pruned, nested structs are always read whole
+         if(requiredSchema != null && prefetched == null && quickbooksOptions.getReport() == null) {
+            final Set<String> required = new HashSet<>(Arrays.asList(requiredSchema.fieldNames()));
+            readSchema = new StructType(Arrays.stream(structType.fields())
+                                              .filter(field -> required.contains(field.name()))
+                                              .toArray(StructField[]::new));
+         }
+
+         QuickbooksDataSourceOptions scanOptions = quickbooksOptions;
+
+         // the pushed filters narrow the condition of the query option
+         if(where != null) {
+            final String queryWhere = quickbooksOptions.getWhere();
+            scanOptions = scanOptions.withOption(
+               "where", queryWhere == null ? where : queryWhere + " AND " + where);
+         }
+
+         if(ids != null) {
+            scanOptions = scanOptions.withOption("ids", ids);
+         }
+
+         // Spark 3.1 doesn't push limits down, the limit option bounds the range of the query.
+         // A snapshot merges changes into every row so it reads the whole entity.
+         if(quickbooksOptions.getLimit() > 0 && !quickbooksOptions.isSnapshot()) {
+            scanOptions = scanOptions.withOption(
+               "maxResults", String.valueOf(quickbooksOptions.getLimit()));
+         }
+
+         final QuickbooksStreamReader scanReader = scanOptions == quickbooksOptions ?
+            reader : new QuickbooksStreamReader(scanOptions);
+         return new QuickbooksInputScan(scanReader, readSchema);
+      }
+
+      private Filter[] pushedFilters = new Filter[0];
+      private String where;
+      // comma separated IDs of an Id IN filter that are looked up in batches
+      private String ids;
+      private StructType requiredSchema;
+   }
+
+   public class QuickbooksInputScan implements Scan, Batch, SupportsReportStatistics, Serializable {
+      public QuickbooksInputScan(QuickbooksStreamReader scanReader, StructType readSchema) {
+         this.scanReader = scanReader;
+         this.readSchema = readSchema;
+         this.scanTime = System.currentTimeMillis();
+         final Option<SparkSession> session = SparkSession.getActiveSession();
+         this.scanMetrics = session.isDefined() ? createScanMetrics(session.get()) : null;
+
+         if(quickbooksOptions.getTraceDir() != null && session.isDefined()) {
+            QuickbooksTrace.mergeOnJobEnd(session.get().sparkContext(),
+                                          quickbooksOptions.getTraceDir());
+         }
+      }
+
       @Override
       public Batch toBatch() {
          return this;
@@ -64,28 +226,437 @@ public class QuickbooksTable implements Table, SupportsRead, Serializable {
 
       @Override
       public StructType readSchema() {
-         if(schema == null) {
-            schema = reader.getSchema();
+         return readSchema;
+      }
+
+      @Override
+      public Statistics estimateStatistics() {
+         if(prefetched != null) {
+            return QuickbooksStatistics.of(prefetched.getRows().length, readSchema.defaultSize());
+         }
+
+         if(quickbooksOptions.getReport() != null) {
+            return QuickbooksStatistics.unknown();
          }
 
-         return schema.getStructType();
+         return QuickbooksStatistics.estimate(scanReader, readSchema);
       }
 
       @Override
       public InputPartition[] planInputPartitions() {
-         return new InputPartition[]{ new Partition() {} };
+         if(prefetched != null) {
+            return new InputPartition[]{ new PrefetchedPartition(prefetched.getRows()) };
+         }
+
+         if(quickbooksOptions.getReport() != null) {
+            return planReportPartitions();
+         }
+
+         final RangePartition[] sample = isSampled() ? planSamplePartitions() : null;
+
+         // no columns are needed when counting rows, answer with the count query. Looked up
+         // IDs can't be counted by a query, the entities are read without columns
+         if(readSchema.fields().length == 0 && scanReader.getOptions().getIds().isEmpty()) {
+            return new InputPartition[]{ new CountPartition(countRows(sample)) };
+         }
+
+         return sample != null ? sample : planEntityPartitions();
+      }
+
+      private long countRows(RangePartition[] sample) {
+         if(sample != null) {
+            return Arrays.stream(sample).mapToLong(range -> range.maxResults).sum();
+         }
+
+         final int limit = scanReader.getOptions().getMaxResults();
+         final int count = scanReader.getTotalCount();
+         return limit > 0 ? Math.min(limit, count) : count;
       }
 
       @Override
       public PartitionReaderFactory createReaderFactory() {
-         return partition -> new QuickbooksPartitionReader(reader, schema);
+         return this::createReader;
+      }
+
+      private PartitionReader<InternalRow> createReader(InputPartition partition) {
+         if(partition instanceof PrefetchedPartition) {
+            return new PrefetchedPartitionReader(((PrefetchedPartition) partition).rows);
+         }
+
+         if(partition instanceof CountPartition) {
+            return new CountPartitionReader(((CountPartition) partition).rows);
+         }
+
+         if(partition instanceof ReportPartition) {
+            final ReportPartition reportPartition = (ReportPartition) partition;
+            final QuickbooksDataSourceOptions sliceOptions = quickbooksOptions
+               .withOption("startDate", reportPartition.startDate)
+               .withOption("endDate", reportPartition.endDate);
+            return new QuickbooksReportPartitionReader(new QuickbooksStreamReader(sliceOptions),
+                                                       schema.getStructType());
+         }
+
+         QuickbooksDataSourceOptions scanOptions = scanReader.getOptions();
+         QuickbooksStreamReader partitionReader = scanReader;
+
+         if(partition instanceof RangePartition) {
+            final RangePartition range = (RangePartition) partition;
+            scanOptions = scanOptions
+               .withOption("startPosition", String.valueOf(range.startPosition))
+               .withOption("maxResults", String.valueOf(range.maxResults));
+            partitionReader = new QuickbooksStreamReader(scanOptions);
+         }
+
+         if(scanOptions.isSnapshot()) {
+            return new QuickbooksSnapshotStore(scanOptions, schema).read(scanReader, readSchema);
+         }
+
+         if(scanOptions.getResultCacheSeconds() > 0) {
+            final String cacheKey = QuickbooksResultCache.getKey(scanOptions, readSchema);
+            final InternalRow[] cachedRows = QuickbooksResultCache.get(cacheKey);
+
+            if(cachedRows != null) {
+               return new PrefetchedPartitionReader(cachedRows);
+            }
+
+            final QuickbooksPartitionReader entityReader = createEntityReader(partitionReader);
+            entityReader.cacheResult(cacheKey, scanOptions.getResultCacheSeconds() * 1000L,
+                                     scanOptions.getResultCacheMaxBytes());
+            return entityReader;
+         }
+
+         return createEntityReader(partitionReader);
       }
+
+      private QuickbooksPartitionReader createEntityReader(QuickbooksStreamReader partitionReader) {
+         final QuickbooksDataSourceOptions partitionOptions = partitionReader.getOptions();
+         // the readers fetch as they are created, start tracing first
+         final QuickbooksTrace trace = partitionOptions.getTraceDir() == null ? null :
+            QuickbooksTrace.start(partitionOptions.getTraceDir(), name());
+         // chunks are only checkpointed when they are fetched separately
+         final QuickbooksCheckpoint checkpoint =
+            partitionOptions.isCheckpoint() && partitionOptions.getPrefetchDepth() > 0 ?
+            QuickbooksCheckpoint.create(partitionOptions, readSchema, scanTime) : null;
+
+         final QuickbooksPartitionReader entityReader;
+
+         try {
+            // the raw reader pages through the entity, ID lookups and resolved references are
+            // read with the SDK
+            entityReader = partitionOptions.isRawJson() && partitionOptions.getIds().isEmpty() &&
+               partitionOptions.getResolveRefs().isEmpty() &&
+               QuickbooksRawPartitionReader.isSupported(readSchema) ?
+               new QuickbooksRawPartitionReader(partitionReader, schema, readSchema, checkpoint) :
+               new QuickbooksPartitionReader(partitionReader, schema, readSchema, checkpoint);
+         }
+         catch(RuntimeException e) {
+            if(trace != null) {
+               trace.finish();
+            }
+
+            throw e;
+         }
+
+         if(scanMetrics != null) {
+            entityReader.reportMetrics(scanMetrics, partitionOptions.getCompanyId(),
+                                       partitionOptions.getEntity());
+         }
+
+         if(trace != null) {
+            entityReader.trace(trace, partitionOptions.getEntity());
+         }
+
+         return entityReader;
+      }
+
+      /**
+       * Create the accumulators of the scan on the driver
+       */
+      private QuickbooksScanMetrics createScanMetrics(SparkSession session) {
+         return new QuickbooksScanMetrics(session.sparkContext(), name());
+      }
+
+      /**
+       * Split the entity into ranges of about targetPartitionBytes using the observed width of
+       * its rows. The last range is open ended so entities created after the count are read,
+       * unless the rows are limited.
+       */
+      private InputPartition[] planEntityPartitions() {
+         final long targetBytes = quickbooksOptions.getTargetPartitionBytes();
+
+         if(targetBytes <= 0 || quickbooksOptions.isSnapshot() ||
+            !scanReader.getOptions().getIds().isEmpty())
+         {
+            return new InputPartition[]{ new Partition() };
+         }
+
+         final long count = QuickbooksStatistics.getRowCount(scanReader);
+         final long rowWidth = QuickbooksStatistics.getRowWidth(
+            QuickbooksStatistics.getEntityKey(quickbooksOptions), schema.getStructType());
+         return QuickbooksTable.planEntityPartitions(count, rowWidth, targetBytes,
+                                                     scanReader.getOptions().getMaxResults());
+      }
+
+      private boolean isSampled() {
+         final double fraction = quickbooksOptions.getSampleFraction();
+         return fraction > 0 && fraction < 1 && !quickbooksOptions.isSnapshot() &&
+            scanReader.getOptions().getIds().isEmpty();
+      }
+
+      /**
+       * Pick blocks of consecutive entities at random positions that together hold the sample
+       * fraction of the entity. Each block is read by its own partition with range queries, so
+       * only the sampled entities are fetched.
+       *
+       * @return the ranges of the blocks, or null if the entity couldn't be counted
+       */
+      private RangePartition[] planSamplePartitions() {
+         final long rows = QuickbooksStatistics.getRowCount(scanReader);
+
+         if(rows <= 0) {
+            return rows < 0 ? null : new RangePartition[0];
+         }
+
+         final double fraction = quickbooksOptions.getSampleFraction();
+         final long sampleRows = Math.max(1, Math.round(rows * fraction));
+         final long blocks = Math.min(MAX_SAMPLE_BLOCKS,
+                                      (sampleRows + SAMPLE_BLOCK_ROWS - 1) / SAMPLE_BLOCK_ROWS);
+         final int blockRows = (int) ((sampleRows + blocks - 1) / blocks);
+         final int blockCount = (int) ((rows + blockRows - 1) / blockRows);
+         final Long seed = quickbooksOptions.getSampleSeed();
+         final Random random = seed == null ? new Random() : new Random(seed);
+
+         // the last block is cut at the counted rows
+         return random.ints(0, blockCount)
+                      .distinct()
+                      .limit(Math.min(blocks, blockCount))
+                      .sorted()
+                      .mapToObj(block -> new RangePartition(
+                         block * blockRows + 1,
+                         (int) Math.min(blockRows, rows - (long) block * blockRows)))
+                      .toArray(RangePartition[]::new);
+      }
+
+      /**
+       * Split the report period into slices of reportSliceDays that are fetched in parallel
+       */
+      private InputPartition[] planReportPartitions() {
+         final String startDate = quickbooksOptions.getStartDate();
+         final String endDate = quickbooksOptions.getEndDate();
+         final int sliceDays = quickbooksOptions.getReportSliceDays();
+
+         if(startDate == null || endDate == null || sliceDays <= 0) {
+            return new InputPartition[]{ new ReportPartition(startDate, endDate) };
+         }
+
+         final List<InputPartition> partitions = new ArrayList<>();
+         final LocalDate end = LocalDate.parse(endDate);
+
+         for(LocalDate start = LocalDate.parse(startDate); !start.isAfter(end);
+             start = start.plusDays(sliceDays))
+         {
+            final LocalDate sliceEnd = start.plusDays(sliceDays - 1L);
+            partitions.add(new ReportPartition(start.toString(),
+                                               (sliceEnd.isAfter(end) ? end : sliceEnd).toString()));
+         }
+
+         return partitions.toArray(new InputPartition[0]);
+      }
+
+      private final QuickbooksStreamReader scanReader;
+      private final StructType readSchema;
+      // identifies the checkpoints of the partitions of this scan
+      private final long scanTime;
+      // totals of the partitions, null when the scan isn't planned in a session
+      private final QuickbooksScanMetrics scanMetrics;
+   }
+
+   private SparkSchema loadSchema() {
+      if(schema == null) {
+         schema = quickbooksOptions.getReport() != null ?
+            reader.getReportSchema() : QuickbooksSchemaCache.getSchema(reader);
+
+         // only the fields selected by the query option are read
+         if(!quickbooksOptions.getFields().isEmpty()) {
+            schema.setStructType(QuickbooksQuery.project(schema.getStructType(),
+                                                         quickbooksOptions.getFields()));
+         }
+
+         // snapshots are converted without the referenced entities
+         if(quickbooksOptions.getReport() == null && !quickbooksOptions.isSnapshot()) {
+            QuickbooksRefResolver.addColumns(schema, quickbooksOptions);
+         }
+      }
+
+      return schema;
+   }
+
+   /**
+    * Split counted entities into ranges of about targetBytes
+    *
+    * @param count    the number of entities, 0 or less if they couldn't be counted
+    * @param rowWidth the estimated bytes of each row
+    * @param limit    the maximum number of entities read, 0 for no limit
+    */
+   static InputPartition[] planEntityPartitions(long count, long rowWidth, long targetBytes,
+                                                int limit)
+   {
+      // a limit caps the rows that are read, no ranges are planned past it
+      final long rows = limit > 0 ? Math.min(count, limit) : count;
+      final long bytes = rows * rowWidth;
+      final long partitions = rows <= 0 ?
+         1 : Math.min(MAX_PARTITIONS, (bytes + targetBytes - 1) / targetBytes);
+
+      if(partitions <= 1) {
+         return new InputPartition[]{ new Partition() };
+      }
+
+      final int rowsPerPartition = (int) ((rows + partitions - 1) / partitions);
+      // rounding the ranges up can cover the rows with fewer of them, an empty range would read
+      // every entity since a maxResults of 0 is unlimited
+      final InputPartition[] ranges =
+         new InputPartition[(int) ((rows + rowsPerPartition - 1) / rowsPerPartition)];
+
+      for(int i = 0; i < ranges.length; i++) {
+         final int start = i * rowsPerPartition;
+         final int maxResults;
+
+         if(limit > 0) {
+            // the last range reads up to the limit in case entities were created after the
+            // count, the others stop at the limit
+            final int remaining = Math.max(0, limit - start);
+            maxResults = i == ranges.length - 1 ? remaining : Math.min(rowsPerPartition, remaining);
+         }
+         else {
+            maxResults = i == ranges.length - 1 ? 0 : rowsPerPartition;
+         }
+
+         ranges[i] = new RangePartition(start + 1, maxResults);
+      }
+
+      return ranges;
    }
 
    public static class Partition implements InputPartition, Serializable {
    }
 
+   /**
+    * Partition that reads a range of the entities
+    */
+   public static class RangePartition implements InputPartition, Serializable {
+      /**
+       * @param startPosition the 1 based position of the first entity
+       * @param maxResults    the number of entities, 0 to read every entity from the start
+       */
+      public RangePartition(int startPosition, int maxResults) {
+         this.startPosition = startPosition;
+         this.maxResults = maxResults;
+      }
+
+      public int getStartPosition() {
+         return startPosition;
+      }
+
+      public int getMaxResults() {
+         return maxResults;
+      }
+
+      private final int startPosition;
+      private final int maxResults;
+   }
+
+   /**
+    * Partition that reads a slice of the report period
+    */
+   public static class ReportPartition implements InputPartition, Serializable {
+      public ReportPartition(String startDate, String endDate) {
+         this.startDate = startDate;
+         this.endDate = endDate;
+      }
+
+      private final String startDate;
+      private final String endDate;
+   }
+
+   /**
+    * Partition that carries rows converted on the driver
+    */
+   public static class PrefetchedPartition implements InputPartition, Serializable {
+      public PrefetchedPartition(InternalRow[] rows) {
+         this.rows = rows;
+      }
+
+      private final InternalRow[] rows;
+   }
+
+   /**
+    * Partition of a scan that doesn't read any columns, only the number of rows
+    */
+   public static class CountPartition implements InputPartition, Serializable {
+      public CountPartition(long rows) {
+         this.rows = rows;
+      }
+
+      private final long rows;
+   }
+
+   private static class CountPartitionReader implements PartitionReader<InternalRow> {
+      CountPartitionReader(long rows) {
+         this.rows = rows;
+      }
+
+      @Override
+      public boolean next() {
+         return ++index < rows;
+      }
+
+      @Override
+      public InternalRow get() {
+         return EMPTY_ROW;
+      }
+
+      @Override
+      public void close() {
+      }
+
+      private static final InternalRow EMPTY_ROW = new GenericInternalRow(0);
+      private final long rows;
+      private long index = -1;
+   }
+
+   private static class PrefetchedPartitionReader implements PartitionReader<InternalRow> {
+      PrefetchedPartitionReader(InternalRow[] rows) {
+         this.rows = rows;
+      }
+
+      @Override
+      public boolean next() {
+         return ++index < rows.length;
+      }
+
+      @Override
+      public InternalRow get() {
+         return rows[index];
+      }
+
+      @Override
+      public void close() {
+      }
+
+      private final InternalRow[] rows;
+      private int index = -1;
+   }
+
+   // QuickBooks allows 10 concurrent requests per company
+   private static final int MAX_PARTITIONS = 10;
+   // larger Id IN lists are looked up in batches instead of a single WHERE condition
+   private static final int MAX_WHERE_IDS = 100;
+   // a sample block is at least one page of a query, more blocks spread the sample further
+   private static final int SAMPLE_BLOCK_ROWS = 1000;
+   private static final int MAX_SAMPLE_BLOCKS = 100;
    private final QuickbooksStreamReader reader;
    private final QuickbooksDataSourceOptions quickbooksOptions;
+   // rows are shipped with the partition, no need to serialize them with the table
+   private final transient QuickbooksMultiEntityReader.PrefetchedEntity prefetched;
    private SparkSchema schema = null;
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.SparkContext;
+import org.apache.spark.TaskContext;
+import org.apache.spark.scheduler.SparkListener;
+import org.apache.spark.scheduler.SparkListenerJobEnd;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Timeline of the stages of reading a partition, written as a Chrome trace file (JSON array
+ * format) that can be opened in chrome://tracing or Perfetto. The trace of a task is the current
+ * trace of the threads working on it, so code that doesn't know about the task records its spans
+ * with {@link #end(String, String, long, Object...)}.
+ */
+public final class QuickbooksTrace {
+   private QuickbooksTrace(Path file, long pid, String processName) {
+      this.file = file;
+      this.pid = pid;
+      addEvent("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + pid +
+                  ",\"args\":{\"name\":" + quote(processName) + "}}");
+   }
+
+   /**
+    * Start the trace of the current task and make it the current trace of this thread
+    *
+    * @param traceDir the directory the trace is written to
+    * @param table    the name of the table that is read
+    */
+   public static QuickbooksTrace start(String traceDir, String table) {
+      final TaskContext task = TaskContext.get();
+      final String fileName;
+      final long pid;
+      final String processName;
+
+      if(task != null) {
+         pid = task.taskAttemptId() + 1;
+         processName = String.format("%s stage %d partition %d attempt %d", table,
+                                     task.stageId(), task.partitionId(), task.attemptNumber());
+         fileName = String.format("task-%d-%d-%d-%d.json", task.stageId(), task.partitionId(),
+                                  task.attemptNumber(), task.taskAttemptId());
+      }
+      else {
+         pid = 0;
+         processName = table + " driver";
+         fileName = "driver-" + UUID.randomUUID() + ".json";
+      }
+
+      final QuickbooksTrace trace =
+         new QuickbooksTrace(Paths.get(traceDir, fileName), pid, processName);
+      CURRENT.set(trace);
+      return trace;
+   }
+
+   /**
+    * @return the trace of the task this thread works on, or null if it isn't traced
+    */
+   public static QuickbooksTrace current() {
+      return CURRENT.get();
+   }
+
+   /**
+    * Make a trace the current trace of this thread, e.g. for a thread that fetches for a task
+    *
+    * @param trace the trace, or null to stop tracing the thread
+    */
+   public static void setCurrent(QuickbooksTrace trace) {
+      if(trace == null) {
+         CURRENT.remove();
+      }
+      else {
+         CURRENT.set(trace);
+      }
+   }
+
+   /**
+    * @return the start time of a span, passed to end()
+    */
+   public static long begin() {
+      return System.nanoTime();
+   }
+
+   /**
+    * Record a span of the current trace that ends now
+    *
+    * @param name       the name of the span
+    * @param category   the category of the span, e.g. the entity
+    * @param beginNanos the start of the span returned by begin()
+    * @param args       names and values of the arguments shown with the span
+    */
+   public static void end(String name, String category, long beginNanos, Object... args) {
+      final QuickbooksTrace trace = CURRENT.get();
+
+      if(trace != null) {
+         trace.complete(name, category, beginNanos, System.nanoTime() - beginNanos, args);
+      }
+   }
+
+   /**
+    * Record a span of the current trace that took a number of milliseconds and ends now
+    */
+   public static void endMillis(String name, String category, long millis, Object... args) {
+      final QuickbooksTrace trace = CURRENT.get();
+
+      if(trace != null) {
+         final long durationNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+         trace.complete(name, category, System.nanoTime() - durationNanos, durationNanos, args);
+      }
+   }
+
+   /**
+    * Record a span of this trace
+    *
+    * @param beginNanos    the start of the span in System.nanoTime()
+    * @param durationNanos the duration of the span
+    * @param args          names and values of the arguments shown with the span
+    */
+   public void complete(String name, String category, long beginNanos, long durationNanos,
+                        Object... args)
+   {
+      final StringBuilder event = new StringBuilder()
+         .append("{\"name\":").append(quote(name))
+         .append(",\"cat\":").append(quote(category))
+         .append(",\"ph\":\"X\",\"ts\":").append(toEpochMicros(beginNanos))
+         .append(",\"dur\":").append(durationNanos / 1000)
+         .append(",\"pid\":").append(pid)
+         .append(",\"tid\":").append(Thread.currentThread().getId())
+         .append(",\"args\":{");
+
+      for(int i = 0; i + 1 < args.length; i += 2) {
+         event.append(i > 0 ? "," : "").append(quote(String.valueOf(args[i]))).append(':');
+         event.append(args[i + 1] instanceof Number ?
+                         args[i + 1].toString() : quote(String.valueOf(args[i + 1])));
+      }
+
+      addEvent(event.append("}}").toString());
+   }
+
+   /**
+    * Write the trace file and stop tracing this thread
+    */
+   public void finish() {
+      if(CURRENT.get() == this) {
+         CURRENT.remove();
+      }
+
+      final List<String> lines;
+
+      synchronized(events) {
+         lines = new ArrayList<>(events);
+      }
+
+      try {
+         write(file, lines);
+      }
+      catch(IOException e) {
+         LOG.warn("Failed to write QuickBooks trace {}", file, e);
+      }
+   }
+
+   /**
+    * Merge the trace files of the tasks in a directory into trace.json in that directory when
+    * each job of a Spark application ends. Executors on other machines must write to a shared
+    * directory for their traces to be merged.
+    */
+   public static void mergeOnJobEnd(SparkContext context, String traceDir) {
+      if(MERGED_DIRS.add(context.applicationId() + ":" + traceDir)) {
+         context.addSparkListener(new SparkListener() {
+            @Override
+            public void onJobEnd(SparkListenerJobEnd jobEnd) {
+               try {
+                  merge(Paths.get(traceDir));
+               }
+               catch(IOException e) {
+                  LOG.warn("Failed to merge QuickBooks traces in {}", traceDir, e);
+               }
+            }
+         });
+      }
+   }
+
+   /**
+    * Merge the trace files in a directory into trace.json in that directory
+    */
+   public static void merge(Path dir) throws IOException {
+      if(!Files.isDirectory(dir)) {
+         return;
+      }
+
+      final List<String> events = new ArrayList<>();
+
+      try(Stream<Path> files = Files.list(dir)) {
+         for(Path file : (Iterable<Path>) files.sorted()::iterator) {
+            final String fileName = file.getFileName().toString();
+
+            if(fileName.endsWith(".json") && !fileName.equals(MERGED_FILE)) {
+               for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                  if(line.startsWith("{")) {
+                     events.add(line.endsWith(",") ? line.substring(0, line.length() - 1) : line);
+                  }
+               }
+            }
+         }
+      }
+
+      write(dir.resolve(MERGED_FILE), events);
+   }
+
+   /**
+    * Merge the trace files of the directories in the arguments
+    */
+   public static void main(String[] args) throws IOException {
+      for(String dir : args) {
+         merge(Paths.get(dir));
+      }
+   }
+
+   private void addEvent(String event) {
+      synchronized(events) {
+         events.add(event);
+      }
+   }
+
+   private static void write(Path file, List<String> events) throws IOException {
+      Files.createDirectories(file.getParent());
+      final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+      try(Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+         writer.write("[\n");
+
+         for(int i = 0; i < events.size(); i++) {
+            writer.write(events.get(i));
+            writer.write(i + 1 < events.size() ? ",\n" : "\n");
+         }
+
+         writer.write("]\n");
+      }
+
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private static long toEpochMicros(long nanos) {
+      return EPOCH_MICROS + (nanos - EPOCH_NANOS) / 1000;
+   }
+
+   private static String quote(String value) {
+      final StringBuilder quoted = new StringBuilder("\"");
+
+      for(char c : value.toCharArray()) {
+         if(c == '"' || c == '\\') {
+            quoted.append('\\').append(c);
+         }
+         else if(c < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) c));
+         }
+         else {
+            quoted.append(c);
+         }
+      }
+
+      return quoted.append('"').toString();
+   }
+
+   private static final String MERGED_FILE = "trace.json";
+   // span times are nanoTime() offsets from the wall clock time the class was loaded, so the
+   // traces of different JVMs line up as well as their clocks do
+   private static final long EPOCH_MICROS =
+      TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+   private static final long EPOCH_NANOS = System.nanoTime();
+   private static final ThreadLocal<QuickbooksTrace> CURRENT = new ThreadLocal<>();
+   private static final Set<String> MERGED_DIRS = ConcurrentHashMap.newKeySet();
+   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+   private final Path file;
+   private final long pid;
+   private final List<String> events = new ArrayList<>();
+}
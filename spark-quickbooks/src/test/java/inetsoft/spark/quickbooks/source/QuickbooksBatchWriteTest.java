@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.catalyst.util.GenericArrayData;
+import org.apache.spark.sql.types.*;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class QuickbooksBatchWriteTest {
+   @Test
+   public void expandsFlattenedColumns() {
+      final StructType schema = new StructType()
+         .add("id", DataTypes.StringType)
+         .add("customerRef_value", DataTypes.StringType)
+         .add("line_0_amount", DECIMAL_TYPE)
+         .add("line_1_amount", DECIMAL_TYPE)
+         .add("privateNote", DataTypes.StringType);
+      final GenericInternalRow row = new GenericInternalRow(new Object[]{
+         UTF8String.fromString("5"), UTF8String.fromString("3"),
+         Decimal.apply(new BigDecimal("10.5"), 18, 6), Decimal.apply(new BigDecimal("7"), 18, 6),
+         null
+      });
+      final Map<String, Object> properties =
+         QuickbooksBatchWrite.toEntityProperties(row, schema.fields());
+
+      assertEquals(Arrays.asList("id", "customerRef", "line"),
+                   new ArrayList<>(properties.keySet()));
+      assertEquals("5", properties.get("id"));
+      assertEquals(Collections.singletonMap("value", "3"), properties.get("customerRef"));
+
+      final List<?> lines = (List<?>) properties.get("line");
+      assertEquals(2, lines.size());
+      assertEquals(0, new BigDecimal("10.5").compareTo(getAmount(lines.get(0))));
+      assertEquals(0, new BigDecimal("7").compareTo(getAmount(lines.get(1))));
+   }
+
+   @Test
+   public void convertsDatesAndTimestamps() {
+      final StructType schema = new StructType()
+         .add("txnDate", DataTypes.DateType)
+         .add("metaData_createTime", DataTypes.TimestampType);
+      final GenericInternalRow row = new GenericInternalRow(new Object[]{
+         (int) LocalDate.of(2026, 1, 15).toEpochDay(), 1767225600123000L
+      });
+      final Map<String, Object> properties =
+         QuickbooksBatchWrite.toEntityProperties(row, schema.fields());
+
+      assertEquals("2026-01-15", properties.get("txnDate"));
+      assertEquals(Collections.singletonMap("createTime", 1767225600123L),
+                   properties.get("metaData"));
+   }
+
+   @Test
+   public void convertsStructsAndArrays() {
+      final StructType address = new StructType().add("line1", DataTypes.StringType);
+      final StructType schema = new StructType()
+         .add("billAddr", address)
+         .add("tags", DataTypes.createArrayType(DataTypes.StringType));
+      final GenericInternalRow row = new GenericInternalRow(new Object[]{
+         new GenericInternalRow(new Object[]{ UTF8String.fromString("1 Main St") }),
+         new GenericArrayData(new Object[]{ UTF8String.fromString("a"), null })
+      });
+      final Map<String, Object> properties =
+         QuickbooksBatchWrite.toEntityProperties(row, schema.fields());
+
+      assertEquals(Collections.singletonMap("line1", "1 Main St"), properties.get("billAddr"));
+      assertEquals(Arrays.asList("a", null), properties.get("tags"));
+   }
+
+   private static BigDecimal getAmount(Object line) {
+      return (BigDecimal) ((Map<?, ?>) line).get("amount");
+   }
+
+   private static final DecimalType DECIMAL_TYPE = DataTypes.createDecimalType(18, 6);
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.sql.sources.*;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class QuickbooksFilterTranslatorTest {
+   @Test
+   public void translatesComparisons() {
+      assertEquals("DocNumber = '1001'", translator.translate(new EqualTo("docNumber", "1001")));
+      assertEquals("TotalAmt > 100", translator.translate(new GreaterThan("totalAmt", 100)));
+      assertEquals("TotalAmt <= 100.5",
+                   translator.translate(new LessThanOrEqual("totalAmt", 100.5)));
+   }
+
+   @Test
+   public void translatesReferencesAndNestedFields() {
+      assertEquals("CustomerRef = '5'",
+                   translator.translate(new EqualTo("customerRef_value", "5")));
+      assertEquals("MetaData.LastUpdatedTime >= '2026-01-02T03:04:05+00:00'",
+                   translator.translate(new GreaterThanOrEqual(
+                      "metaData_lastUpdatedTime",
+                      Timestamp.from(Instant.parse("2026-01-02T03:04:05Z")))));
+   }
+
+   @Test
+   public void translatesDates() {
+      assertEquals("TxnDate < '2026-03-01'", translator.translate(
+         new LessThan("txnDate", java.sql.Date.valueOf("2026-03-01"))));
+   }
+
+   @Test
+   public void leavesSubSecondTimesToSpark() {
+      assertNull(translator.translate(new GreaterThan(
+         "metaData_lastUpdatedTime", Timestamp.from(Instant.parse("2026-01-02T03:04:05.500Z")))));
+   }
+
+   @Test
+   public void translatesInLists() {
+      assertEquals("Id IN ('1', '2')",
+                   translator.translate(new In("id", new Object[]{ "1", "2" })));
+      assertNull(translator.translate(new In("id", new Object[0])));
+   }
+
+   @Test
+   public void translatesLike() {
+      assertEquals("DocNumber LIKE 'A%'",
+                   translator.translate(new StringStartsWith("docNumber", "A")));
+      assertEquals("DocNumber LIKE '%A'",
+                   translator.translate(new StringEndsWith("docNumber", "A")));
+      assertEquals("DocNumber LIKE '%A%'",
+                   translator.translate(new StringContains("docNumber", "A")));
+      assertNull(translator.translate(new StringContains("docNumber", "50%")));
+   }
+
+   @Test
+   public void quotesStrings() {
+      assertEquals("DocNumber = 'O\\'Brien'",
+                   translator.translate(new EqualTo("docNumber", "O'Brien")));
+   }
+
+   @Test
+   public void translatesAndOnlyWhenBothSidesTranslate() {
+      assertEquals("Id = '1' AND TotalAmt > 0", translator.translate(
+         new And(new EqualTo("id", "1"), new GreaterThan("totalAmt", 0))));
+      assertNull(translator.translate(
+         new And(new EqualTo("id", "1"), new EqualTo("privateNote", "x"))));
+   }
+
+   @Test
+   public void skipsUnfilterableFieldsAndFilters() {
+      assertNull(translator.translate(new EqualTo("privateNote", "x")));
+      assertNull(translator.translate(new IsNull("docNumber")));
+      assertNull(translator.translate(new Or(new EqualTo("id", "1"), new EqualTo("id", "2"))));
+   }
+
+   @Test
+   public void stringComparisonsAreExactOnlyOnIds() {
+      assertTrue(translator.isExact(new EqualTo("id", "1")));
+      assertTrue(translator.isExact(new EqualTo("customerRef_value", "5")));
+      assertTrue(translator.isExact(new GreaterThan("totalAmt", 100)));
+      assertTrue(translator.isExact(new In("id", new Object[]{ "1", "2" })));
+      assertFalse(translator.isExact(new EqualTo("docNumber", "1001")));
+      assertFalse(translator.isExact(new StringStartsWith("id", "1")));
+      // QuickBooks compares IDs as numbers, Spark compares the strings
+      assertFalse(translator.isExact(new GreaterThan("id", "9")));
+      assertFalse(translator.isExact(new LessThanOrEqual("customerRef_value", "100")));
+      assertFalse(translator.isExact(
+         new And(new EqualTo("id", "1"), new EqualTo("docNumber", "1001"))));
+   }
+
+   private final QuickbooksFilterTranslator translator = new QuickbooksFilterTranslator(
+      new HashSet<>(Arrays.asList("id", "docNumber", "totalAmt", "txnDate", "customerRef_value",
+                                  "metaData_lastUpdatedTime")));
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.sql.types.DataTypes;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class QuickbooksPartitionReaderTest {
+   @After
+   public void restoreTimeZone() {
+      TimeZone.setDefault(defaultZone);
+   }
+
+   @Test
+   public void keepsDayOfSdkDatesEastOfUtc() {
+      assertSdkDate("Asia/Tokyo");
+   }
+
+   @Test
+   public void keepsDayOfSdkDatesWestOfUtc() {
+      assertSdkDate("America/Los_Angeles");
+   }
+
+   @Test
+   public void convertsSdkTimestampsToMicros() {
+      final Date date = new Date(1767225600123L);
+      assertEquals(1767225600123000L,
+                   QuickbooksPartitionReader.toDateValue(date, DataTypes.TimestampType));
+   }
+
+   /**
+    * The SDK parses a date such as 2026-01-15 at midnight in the default zone
+    */
+   private static void assertSdkDate(String zone) {
+      TimeZone.setDefault(TimeZone.getTimeZone(zone));
+      final Date date = new GregorianCalendar(2026, Calendar.JANUARY, 15).getTime();
+
+      assertEquals((int) LocalDate.of(2026, 1, 15).toEpochDay(),
+                   QuickbooksPartitionReader.toDateValue(date, DataTypes.DateType));
+   }
+
+   private final TimeZone defaultZone = TimeZone.getDefault();
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import inetsoft.spark.quickbooks.QuickbooksDataSourceOptions;
+import org.apache.spark.sql.types.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class QuickbooksQueryTest {
+   @Test
+   public void leavesOptionsWithoutQuery() {
+      final QuickbooksDataSourceOptions options = options("entity", "Invoice");
+      assertSame(options, QuickbooksQuery.apply(options));
+   }
+
+   @Test
+   public void splitsQuery() {
+      final QuickbooksDataSourceOptions options = QuickbooksQuery.apply(options(
+         "entity", "Invoice",
+         "query", "SELECT Id, DocNumber, MetaData.CreateTime FROM Invoice " +
+            "WHERE TotalAmt > '100' ORDERBY DocNumber DESC"));
+
+      assertEquals("Invoice", options.getEntity());
+      assertEquals(Arrays.asList("Id", "DocNumber", "MetaData.CreateTime"), options.getFields());
+      assertEquals("TotalAmt > '100'", options.getWhere());
+      assertEquals("DocNumber DESC", options.getOrderBy());
+   }
+
+   @Test
+   public void takesEntityFromQuery() {
+      final QuickbooksDataSourceOptions options = QuickbooksQuery.apply(options(
+         "query", "SELECT Id, DocNumber FROM Invoice WHERE DocNumber = '1001'"));
+
+      assertEquals("Invoice", options.getEntity());
+      assertEquals(Arrays.asList("Id", "DocNumber"), options.getFields());
+      assertEquals("DocNumber = '1001'", options.getWhere());
+   }
+
+   @Test
+   public void acceptsMatchingEntity() {
+      final QuickbooksDataSourceOptions options = QuickbooksQuery.apply(options(
+         "entity", "invoice", "query", "SELECT * FROM Invoice"));
+
+      assertEquals("Invoice", options.getEntity());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsDifferentEntity() {
+      QuickbooksQuery.apply(options("entity", "Customer", "query", "SELECT * FROM Invoice"));
+   }
+
+   @Test
+   public void selectsEveryField() {
+      final QuickbooksDataSourceOptions options = QuickbooksQuery.apply(options(
+         "entity", "Invoice", "query", "select * from Invoice;"));
+
+      assertEquals("Invoice", options.getEntity());
+      assertTrue(options.getFields().isEmpty());
+      assertNull(options.getWhere());
+      assertNull(options.getOrderBy());
+   }
+
+   @Test
+   public void acceptsOrderBySeparatedBySpace() {
+      final QuickbooksDataSourceOptions options = QuickbooksQuery.apply(options(
+         "entity", "Invoice", "query", "SELECT * FROM Invoice ORDER BY TxnDate"));
+
+      assertNull(options.getWhere());
+      assertEquals("TxnDate", options.getOrderBy());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsInvalidQuery() {
+      QuickbooksQuery.apply(options("entity", "Invoice", "query", "DELETE FROM Invoice"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsInvalidField() {
+      QuickbooksQuery.apply(options("entity", "Invoice", "query", "SELECT Id, 1+1 FROM Invoice"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsPagination() {
+      QuickbooksQuery.apply(options(
+         "entity", "Invoice",
+         "query", "SELECT * FROM Invoice WHERE Id > '1' STARTPOSITION 1 MAXRESULTS 10"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsSnapshot() {
+      QuickbooksQuery.apply(options(
+         "entity", "Invoice", "snapshot", "true", "query", "SELECT * FROM Invoice"));
+   }
+
+   @Test
+   public void projectsSelectedFields() {
+      final StructType structType = new StructType()
+         .add("id", DataTypes.StringType)
+         .add("docNumber", DataTypes.StringType)
+         .add("customerRef_value", DataTypes.StringType)
+         .add("customerRef_name", DataTypes.StringType)
+         .add("metaData_createTime", DataTypes.TimestampType)
+         .add("metaData_lastUpdatedTime", DataTypes.TimestampType);
+      final StructType projected = QuickbooksQuery.project(
+         structType, Arrays.asList("Id", "CustomerRef", "MetaData.CreateTime"));
+
+      assertArrayEquals(
+         new String[]{ "id", "customerRef_value", "customerRef_name", "metaData_createTime" },
+         projected.fieldNames());
+   }
+
+   @Test
+   public void projectsStructOfSelectedField() {
+      final StructType metaData = new StructType()
+         .add("createTime", DataTypes.TimestampType)
+         .add("lastUpdatedTime", DataTypes.TimestampType);
+      final StructType structType = new StructType()
+         .add("id", DataTypes.StringType)
+         .add("metaData", metaData);
+      final StructType projected =
+         QuickbooksQuery.project(structType, Collections.singletonList("MetaData.CreateTime"));
+
+      assertArrayEquals(new String[]{ "metaData" }, projected.fieldNames());
+   }
+
+   private static QuickbooksDataSourceOptions options(String... keyValues) {
+      final Map<String, String> options = new HashMap<>();
+
+      for(int i = 0; i < keyValues.length; i += 2) {
+         options.put(keyValues[i], keyValues[i + 1]);
+      }
+
+      return QuickbooksDataSourceOptions.from(options);
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 InetSoft Technology
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package inetsoft.spark.quickbooks.source;
+
+import org.apache.spark.sql.connector.read.InputPartition;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QuickbooksTableTest {
+   @Test
+   public void readsSmallEntityInOnePartition() {
+      assertSinglePartition(QuickbooksTable.planEntityPartitions(1000, 100, 1000000, 0));
+      assertSinglePartition(QuickbooksTable.planEntityPartitions(0, 100, 1000, 0));
+   }
+
+   @Test
+   public void splitsEntityIntoRanges() {
+      final InputPartition[] partitions = QuickbooksTable.planEntityPartitions(1000, 100, 20000, 0);
+
+      assertEquals(5, partitions.length);
+
+      for(int i = 0; i < partitions.length; i++) {
+         // the last range is open ended for entities created after the count
+         assertRange(partitions[i], i * 200 + 1, i == partitions.length - 1 ? 0 : 200);
+      }
+   }
+
+   @Test
+   public void limitsPartitions() {
+      final InputPartition[] partitions =
+         QuickbooksTable.planEntityPartitions(1000, 100, 5000, 150);
+
+      assertEquals(3, partitions.length);
+      assertRange(partitions[0], 1, 50);
+      assertRange(partitions[1], 51, 50);
+      assertRange(partitions[2], 101, 50);
+   }
+
+   @Test
+   public void readsUpToLimitAfterCount() {
+      final InputPartition[] partitions =
+         QuickbooksTable.planEntityPartitions(300, 100, 10000, 1000);
+
+      assertEquals(3, partitions.length);
+      assertRange(partitions[0], 1, 100);
+      assertRange(partitions[1], 101, 100);
+      assertRange(partitions[2], 201, 800);
+   }
+
+   @Test
+   public void skipsEmptyRanges() {
+      // 10 partitions of 2 rows cover the 11 rows with 6 ranges
+      final InputPartition[] partitions = QuickbooksTable.planEntityPartitions(11, 100, 110, 0);
+
+      assertEquals(6, partitions.length);
+
+      for(int i = 0; i < partitions.length; i++) {
+         assertRange(partitions[i], i * 2 + 1, i == partitions.length - 1 ? 0 : 2);
+      }
+   }
+
+   private static void assertSinglePartition(InputPartition[] partitions) {
+      assertEquals(1, partitions.length);
+      assertTrue(partitions[0] instanceof QuickbooksTable.Partition);
+   }
+
+   private static void assertRange(InputPartition partition, int startPosition, int maxResults) {
+      assertTrue(partition instanceof QuickbooksTable.RangePartition);
+      final QuickbooksTable.RangePartition range = (QuickbooksTable.RangePartition) partition;
+      assertEquals(startPosition, range.getStartPosition());
+      assertEquals(maxResults, range.getMaxResults());
+   }
+}